@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AddField#transform} throughput for constant, UUID, hash, hash bucket, sequence and timestamp values
+ * over records of different widths. 'timestamp' reads the clock for every record, 'timestampSecond' reuses the value
+ * within a second, and 'formattedSecond' also reuses the formatted string.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddFieldBenchmark {
+  private static final String HASH_FIELDS = "field_0,field_1,field_2,field_3,field_4";
+
+  @Param({"10", "100", "1000"})
+  private int width;
+
+  @Param({"constant", "uuid", "hash", "bucket", "sequence", "timestamp", "timestampSecond", "formattedSecond"})
+  private String mode;
+
+  private AddField transform;
+  private StructuredRecord record;
+  private BenchmarkRecords.BlackholeEmitter emitter;
+
+  @Setup
+  public void setup(Blackhole blackhole) throws Exception {
+    AddFieldConfig.Builder config = AddFieldConfig.builder().setFieldName("added");
+    if ("uuid".equals(mode)) {
+      config.setAsUUID(true);
+    } else if ("hash".equals(mode)) {
+      config.setHashFields(HASH_FIELDS);
+    } else if ("bucket".equals(mode)) {
+      config.setHashFields(HASH_FIELDS).setHashBuckets(64);
+    } else if ("sequence".equals(mode)) {
+      config.setAsSequence(true);
+    } else if ("timestamp".equals(mode)) {
+      config.setAsTimestamp(true);
+    } else if ("timestampSecond".equals(mode)) {
+      config.setAsTimestamp(true).setTimestampGranularity("second");
+    } else if ("formattedSecond".equals(mode)) {
+      config.setAsTimestamp(true).setTimestampGranularity("second").setTimestampFormat("yyyy-MM-dd HH:mm:ss");
+    } else {
+      config.setFieldValue("constant value");
+    }
+    transform = new AddField(config.build());
+    transform.initialize(new MockTransformContext());
+    Schema schema = BenchmarkRecords.schema(width);
+    record = BenchmarkRecords.record(schema);
+    // created once, so that its allocation does not count towards the bytes per record
+    emitter = new BenchmarkRecords.BlackholeEmitter(blackhole);
+  }
+
+  @Benchmark
+  public void transform() throws Exception {
+    transform.transform(record, emitter);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per record throughput of {@link AddField#transform} with the function that {@link AddFieldCompute}
+ * maps over each partition, for the same configs. Both are measured once their per partition state is set up, which
+ * leaves the cost of the emitter and the metrics of the transform against the plain return of the function.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddFieldComputeBenchmark {
+
+  @Param({"10", "100"})
+  private int width;
+
+  @Param({"constant", "uuid", "hash"})
+  private String mode;
+
+  @Param({"transform", "compute"})
+  private String plugin;
+
+  private AddField transform;
+  private AddFieldCompute.AddFieldFunction function;
+  private StructuredRecord record;
+  private BenchmarkRecords.BlackholeEmitter emitter;
+  private Blackhole blackhole;
+
+  @Setup
+  public void setup(Blackhole blackhole) throws Exception {
+    AddFieldConfig.Builder config = AddFieldConfig.builder().setFieldName("added");
+    if ("uuid".equals(mode)) {
+      config.setAsUUID(true);
+    } else if ("hash".equals(mode)) {
+      config.setHashFields("field_0,field_1,field_2,field_3,field_4");
+    } else {
+      config.setFieldValue("constant value");
+    }
+    record = BenchmarkRecords.record(BenchmarkRecords.schema(width));
+    if ("transform".equals(plugin)) {
+      transform = new AddField(config.build());
+      transform.initialize(new MockTransformContext());
+    } else {
+      function = new AddFieldCompute.AddFieldFunction(config.build(), 1L);
+      // sets up the partition state
+      function.call(record);
+    }
+    this.blackhole = blackhole;
+    emitter = new BenchmarkRecords.BlackholeEmitter(blackhole);
+  }
+
+  @Benchmark
+  public void addField() throws Exception {
+    if (function == null) {
+      transform.transform(record, emitter);
+    } else {
+      blackhole.consume(function.call(record));
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+
+/**
+ * Input shapes and an emitter shared by the benchmarks.
+ */
+final class BenchmarkRecords {
+
+  private BenchmarkRecords() {
+  }
+
+  /**
+   * Returns a record schema with the given number of string fields.
+   */
+  static Schema schema(int width) {
+    Schema.Field[] fields = new Schema.Field[width];
+    for (int i = 0; i < width; i++) {
+      fields[i] = Schema.Field.of("field_" + i, Schema.nullableOf(Schema.of(Schema.Type.STRING)));
+    }
+    return Schema.recordOf("input", fields);
+  }
+
+  /**
+   * Returns a record of the given schema with every field set.
+   */
+  static StructuredRecord record(Schema schema) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (Schema.Field field : schema.getFields()) {
+      builder.set(field.getName(), "value of " + field.getName());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns a MultiFieldAdder field value property that adds the given number of fields.
+   */
+  static String fieldValues(int count) {
+    StringBuilder fieldValues = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        fieldValues.append(',');
+      }
+      fieldValues.append("added_").append(i).append(':').append("value_").append(i);
+    }
+    return fieldValues.toString();
+  }
+
+  /**
+   * Emitter that hands everything to a JMH {@link Blackhole} so that nothing is retained.
+   */
+  static final class BlackholeEmitter implements Emitter<StructuredRecord> {
+    private final Blackhole blackhole;
+
+    BlackholeEmitter(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void emit(StructuredRecord value) {
+      blackhole.consume(value);
+    }
+
+    @Override
+    public void emitError(InvalidEntry<StructuredRecord> invalidEntry) {
+      blackhole.consume(invalidEntry);
+    }
+
+    @Override
+    public void emitAlert(Map<String, String> payload) {
+      blackhole.consume(payload);
+    }
+  }
+}
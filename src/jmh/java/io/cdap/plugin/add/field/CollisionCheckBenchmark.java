@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking every field of an input schema against the added field names of {@link MultiFieldAdder}, when
+ * none of them collide. 'treeMap' is the lookup MultiFieldAdder used to do for every record, and 'hashSet' the JDK
+ * hash set that {@link FieldPlan} now uses once per input schema.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionCheckBenchmark {
+
+  @Param({"100", "1000"})
+  private int width;
+
+  @Param({"1000"})
+  private int added;
+
+  private String[] inputNames;
+  private Map<String, String> treeMap;
+  private Set<String> hashSet;
+
+  @Setup
+  public void setup() {
+    Schema schema = BenchmarkRecords.schema(width);
+    inputNames = schema.getFields().stream().map(Schema.Field::getName).toArray(String[]::new);
+    treeMap = new TreeMap<>();
+    hashSet = new HashSet<>();
+    for (int i = 0; i < added; i++) {
+      treeMap.put("added_" + i, "value");
+      hashSet.add("added_" + i);
+    }
+  }
+
+  @Benchmark
+  public boolean treeMap() {
+    for (String name : inputNames) {
+      if (treeMap.containsKey(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Benchmark
+  public boolean hashSet() {
+    for (String name : inputNames) {
+      if (hashSet.contains(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up random keys, nine in ten of which exist, in a {@link LookupIndex} and in a HashMap holding the
+ * same file. Setup prints the heap retained by the HashMap and the size of the index file, which is mapped outside
+ * the heap and shared by every task on a host.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class LookupBenchmark {
+  private static final int QUERIES = 1 << 16;
+
+  @Param({"1000000"})
+  private int keys;
+
+  private File directory;
+  private Map<String, String> hashMap;
+  private LookupIndex index;
+  private String[] queries;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    directory = Files.createTempDirectory("lookup-benchmark").toFile();
+    File source = new File(directory, "source.csv");
+    try (BufferedWriter writer = Files.newBufferedWriter(source.toPath(), StandardCharsets.UTF_8)) {
+      for (int i = 0; i < keys; i++) {
+        writer.write("customer-" + i + ",segment-" + (i % 100) + "-" + i);
+        writer.newLine();
+      }
+    }
+
+    long heapBefore = usedHeap();
+    hashMap = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+      String[] pair = new String[2];
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        LookupIndex.parseLine(line, 0, source, pair);
+        hashMap.put(pair[0], pair[1]);
+      }
+    }
+    long hashMapBytes = usedHeap() - heapBefore;
+
+    File indexFile = new File(directory, "source.idx");
+    index = LookupIndex.open(source, indexFile, 30);
+    System.out.printf("%nHashMap heap: %d MB, index file: %d MB%n", hashMapBytes >> 20, indexFile.length() >> 20);
+
+    SplittableRandom random = new SplittableRandom(42);
+    queries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = "customer-" + random.nextInt(keys + keys / 9);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  @Benchmark
+  public String hashMap() {
+    return hashMap.get(queries[next++ & (QUERIES - 1)]);
+  }
+
+  @Benchmark
+  public String index() {
+    return index.get(queries[next++ & (QUERIES - 1)]);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
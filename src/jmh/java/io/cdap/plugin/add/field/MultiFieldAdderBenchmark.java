@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MultiFieldAdder#transform} throughput over records of different widths and numbers of added fields.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiFieldAdderBenchmark {
+
+  @Param({"10", "100", "1000"})
+  private int width;
+
+  @Param({"1", "10", "100", "1000"})
+  private int added;
+
+  private MultiFieldAdder transform;
+  private StructuredRecord record;
+  private BenchmarkRecords.BlackholeEmitter emitter;
+
+  @Setup
+  public void setup(Blackhole blackhole) throws Exception {
+    transform = new MultiFieldAdder(new MultiFieldAdderConfig(BenchmarkRecords.fieldValues(added)));
+    transform.initialize(new MockTransformContext());
+    record = BenchmarkRecords.record(BenchmarkRecords.schema(width));
+    // created once, so that its allocation does not count towards the bytes per record
+    emitter = new BenchmarkRecords.BlackholeEmitter(blackhole);
+  }
+
+  @Benchmark
+  public void transform() throws Exception {
+    transform.transform(record, emitter);
+  }
+}
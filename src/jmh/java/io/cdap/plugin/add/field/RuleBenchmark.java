@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures choosing a value with a {@link RuleTable} of exact, prefix and range rules, against the number of rules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBenchmark {
+  private static final int QUERIES = 1 << 12;
+
+  @Param({"10", "1000", "100000"})
+  private int rules;
+
+  private RuleTable exact;
+  private RuleTable prefix;
+  private RuleTable range;
+  private String[] exactKeys;
+  private String[] prefixKeys;
+  private Long[] numberKeys;
+  private int next;
+
+  @Setup
+  public void setup() {
+    StringBuilder exactRules = new StringBuilder();
+    StringBuilder prefixRules = new StringBuilder();
+    StringBuilder rangeRules = new StringBuilder();
+    for (int i = 0; i < rules; i++) {
+      String separator = i == 0 ? "" : ",";
+      exactRules.append(separator).append("key-").append(i).append(":value-").append(i);
+      prefixRules.append(separator).append("key-").append(i).append("-*:value-").append(i);
+      rangeRules.append(separator).append(i * 10).append("..").append(i * 10 + 5).append(":value-").append(i);
+    }
+    exact = RuleTable.compile(exactRules.toString(), "default");
+    prefix = RuleTable.compile(prefixRules.toString(), "default");
+    range = RuleTable.compile(rangeRules.toString(), "default");
+
+    SplittableRandom random = new SplittableRandom(42);
+    exactKeys = new String[QUERIES];
+    prefixKeys = new String[QUERIES];
+    numberKeys = new Long[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      exactKeys[i] = "key-" + random.nextInt(rules);
+      prefixKeys[i] = exactKeys[i] + "-suffix";
+      numberKeys[i] = (long) random.nextInt(rules * 10);
+    }
+  }
+
+  @Benchmark
+  public String exact() {
+    return exact.get(exactKeys[next++ & (QUERIES - 1)]);
+  }
+
+  @Benchmark
+  public String prefix() {
+    return prefix.get(prefixKeys[next++ & (QUERIES - 1)]);
+  }
+
+  @Benchmark
+  public String range() {
+    return range.get(numberKeys[next++ & (QUERIES - 1)]);
+  }
+}
@@ -28,10 +28,10 @@ import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageConfigurer;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.api.TransformContext;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 import javax.ws.rs.Path;
 
 /**
@@ -42,7 +42,14 @@ import javax.ws.rs.Path;
 @Description("Adds a new field to each input record whose value can either be a new UUID, or a configured value.")
 public class AddField extends Transform<StructuredRecord, StructuredRecord> {
   public static final String NAME = "AddField";
+  private static final String COLLISION_FORMAT = "field '%s' already exists in input";
   private final AddFieldConfig config;
+  private final SchemaCache<OutputPlan> outputPlans = new SchemaCache<>(this::createOutputPlan);
+  private TransformMetrics metrics;
+  private AddedValueSource valueSource;
+  private String planKey;
+  // holds the value of the added field for the record being transformed
+  private final Object[] values = new Object[1];
 
   /**
    * Endpoint request for output schema.
@@ -77,24 +84,47 @@ public class AddField extends Transform<StructuredRecord, StructuredRecord> {
     failureCollector.getOrThrowException();
   }
 
+  @Override
+  public void initialize(TransformContext context) throws Exception {
+    super.initialize(context);
+    metrics = new TransformMetrics(context.getMetrics(), outputPlans, config.getMetricsSampleInterval(),
+                                   config.getErrorSampleInterval());
+    // plans for each input schema are shared with the other tasks of this stage in the JVM
+    planKey = getPlanKey(config);
+    // spark tasks use their partition as the stripe, other tasks only get a stripe that is distinct in the process
+    valueSource = new AddedValueSource(config, SequenceGenerator.taskStripe(), null);
+  }
+
   // transform is called once for each record that goes into this stage
   @Override
   public void transform(StructuredRecord record, Emitter<StructuredRecord> emitter) throws Exception {
-    Schema outputSchema = getOutputSchema(record.getSchema(), config);
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-    for (Schema.Field inputField : record.getSchema().getFields()) {
-      String inputFieldName = inputField.getName();
-      // this can only happen when the input schema is not constant and known at configure time
-      if (inputFieldName.equals(config.getFieldName())) {
-        emitter.emitError(new InvalidEntry<>(400, String.format("field '%s' already exists in input",
-                                                                config.getFieldName()), record));
-        return;
+    metrics.recordStarted();
+    OutputPlan plan = outputPlans.get(record.getSchema());
+    // this can only happen when the input schema is not constant and known at configure time
+    if (plan.getCollisionMessage() != null) {
+      if (metrics.collisionFailed(plan.getCollisionField())) {
+        emitter.emitError(new InvalidEntry<>(400, plan.getCollisionMessage(), record));
+        metrics.collisionEmitted();
       }
-      builder.set(inputFieldName, record.get(inputFieldName));
+      return;
+    }
+    // the value is not computed if the input already has the field and the collision policy keeps it
+    if (plan.isAdded(0)) {
+      values[0] = valueSource.next(record);
     }
-    String newFieldVal = config.getAsUUID() ? UUID.randomUUID().toString() : config.getFieldValue();
-    builder.set(config.getFieldName(), newFieldVal);
-    emitter.emit(builder.build());
+    emitter.emit(plan.build(record, values));
+    metrics.recordEmitted();
+  }
+
+  @Override
+  public void destroy() {
+    if (metrics != null) {
+      metrics.flush();
+    }
+    if (valueSource != null) {
+      valueSource.close();
+    }
+    super.destroy();
   }
 
   @Path("outputSchema")
@@ -102,11 +132,43 @@ public class AddField extends Transform<StructuredRecord, StructuredRecord> {
     return getOutputSchema(request.inputSchema, request);
   }
 
-  private Schema getOutputSchema(Schema inputSchema, AddFieldConfig config) {
-    List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size() + 1);
-    fields.addAll(inputSchema.getFields());
-    fields.add(Schema.Field.of(config.getFieldName(), Schema.of(Schema.Type.STRING)));
-    return Schema.recordOf(inputSchema.getRecordName() + ".added", fields);
+  static Schema getOutputSchema(Schema inputSchema, AddFieldConfig config) {
+    return createOutputPlan(inputSchema, config).getOutputSchema();
+  }
+
+  private OutputPlan createOutputPlan(Schema inputSchema) {
+    return SharedPlanCache.INSTANCE.get(planKey, inputSchema, schema -> createOutputPlan(schema, config));
   }
 
+  /**
+   * Returns the schema of the added field. Looked up values are null for keys that are not in the lookup file.
+   */
+  static Schema getFieldSchema(AddFieldConfig config) {
+    if (config.getLookupFile() != null) {
+      return Schema.nullableOf(Schema.of(Schema.Type.STRING));
+    }
+    if (config.getHashBuckets() > 0) {
+      return Schema.of(Schema.Type.INT);
+    }
+    if (config.getAsTimestamp() && config.getTimestampFormat() == null) {
+      return Schema.of(Schema.LogicalType.TIMESTAMP_MICROS);
+    }
+    return Schema.of(config.getAsSequence() ? Schema.Type.LONG : Schema.Type.STRING);
+  }
+
+  /**
+   * Returns the key of the plans for the given config in the {@link SharedPlanCache}.
+   */
+  static String getPlanKey(AddFieldConfig config) {
+    return SharedPlanCache.planKey(getAddedFields(config), config.getCollisionPolicy(), COLLISION_FORMAT);
+  }
+
+  static OutputPlan createOutputPlan(Schema inputSchema, AddFieldConfig config) {
+    return OutputPlan.create(inputSchema, getAddedFields(config), Collections.singleton(config.getFieldName()),
+                             config.getCollisionPolicy(), COLLISION_FORMAT);
+  }
+
+  private static List<Schema.Field> getAddedFields(AddFieldConfig config) {
+    return Collections.singletonList(Schema.Field.of(config.getFieldName(), getFieldSchema(config)));
+  }
 }
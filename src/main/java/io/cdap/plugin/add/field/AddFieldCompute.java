@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageConfigurer;
+import io.cdap.cdap.etl.api.batch.SparkCompute;
+import io.cdap.cdap.etl.api.batch.SparkExecutionPluginContext;
+import io.cdap.cdap.etl.api.batch.SparkPluginContext;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.util.TaskCompletionListener;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import javax.ws.rs.Path;
+
+/**
+ * Spark compute version of {@link AddField}. Rather than going through the generic per-record transform executor,
+ * it maps each partition with a function that prepares its output schemas and value generator once for the whole
+ * partition.
+ */
+@Plugin(type = SparkCompute.PLUGIN_TYPE)
+@Name(AddFieldCompute.NAME)
+@Description("Adds a new field to each input record whose value can either be a new UUID, or a configured value. " +
+  "Runs as a Spark compute stage.")
+public class AddFieldCompute extends SparkCompute<StructuredRecord, StructuredRecord> {
+  public static final String NAME = "AddFieldCompute";
+  private final AddFieldConfig config;
+
+  /**
+   * Endpoint request for output schema.
+   */
+  public static class GetSchemaRequest extends AddFieldConfig {
+    private Schema inputSchema;
+  }
+
+  public AddFieldCompute(AddFieldConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    StageConfigurer stageConfigurer = pipelineConfigurer.getStageConfigurer();
+    Schema inputSchema = stageConfigurer.getInputSchema();
+    FailureCollector failureCollector = stageConfigurer.getFailureCollector();
+    config.validate(failureCollector, inputSchema);
+
+    if (inputSchema != null) {
+      stageConfigurer.setOutputSchema(AddField.getOutputSchema(inputSchema, config));
+    }
+  }
+
+  @Override
+  public void prepareRun(SparkPluginContext context) throws Exception {
+    super.prepareRun(context);
+    FailureCollector failureCollector = context.getFailureCollector();
+    config.validate(failureCollector, context.getInputSchema());
+    failureCollector.getOrThrowException();
+  }
+
+  @Override
+  public JavaRDD<StructuredRecord> transform(SparkExecutionPluginContext context,
+                                             JavaRDD<StructuredRecord> input) throws Exception {
+    return input.map(new AddFieldFunction(config, new SecureRandom().nextLong()));
+  }
+
+  @Path("outputSchema")
+  public Schema getOutputSchema(GetSchemaRequest request) {
+    return AddField.getOutputSchema(request.inputSchema, request);
+  }
+
+  /**
+   * Adds the field to each record of a partition.
+   *
+   * Spark deserializes a separate copy of this function for every task, so the transient state below is created
+   * once per partition, on its first record, and is never shared with other partitions. This gives the same
+   * per-partition setup as mapPartitions, but through the {@link Function} interface, which unlike FlatMapFunction
+   * is the same in Spark 1 and Spark 2.
+   */
+  static final class AddFieldFunction implements Function<StructuredRecord, StructuredRecord> {
+    private final AddFieldConfig config;
+    private final long seed;
+    private transient SchemaCache<OutputPlan> outputPlans;
+    private transient AddedValueSource valueSource;
+    private transient Object[] values;
+
+    AddFieldFunction(AddFieldConfig config, long seed) {
+      this.config = config;
+      this.seed = seed;
+    }
+
+    @Override
+    public StructuredRecord call(StructuredRecord record) throws IOException {
+      if (outputPlans == null) {
+        initializePartition();
+      }
+      OutputPlan plan = outputPlans.get(record.getSchema());
+      // there is no error emitter for spark compute stages, and this can only happen when the input schema is
+      // not constant and known at configure time
+      if (plan.getCollisionMessage() != null) {
+        throw new IllegalArgumentException(plan.getCollisionMessage());
+      }
+      if (plan.isAdded(0)) {
+        values[0] = valueSource.next(record);
+      }
+      return plan.build(record, values);
+    }
+
+    private void initializePartition() throws IOException {
+      String planKey = AddField.getPlanKey(config);
+      outputPlans = new SchemaCache<>(schema -> SharedPlanCache.INSTANCE.get(
+        planKey, schema, inputSchema -> AddField.createOutputPlan(inputSchema, config)));
+      values = new Object[1];
+      TaskContext taskContext = TaskContext.get();
+      int partition = taskContext == null ? 0 : taskContext.partitionId();
+      // partitions of a stage get distinct stripes, as long as there are no more of them than there are stripes
+      valueSource = new AddedValueSource(config, partition & SequenceGenerator.MAX_STRIPE,
+                                         new SplittableRandom(mix(seed + partition)));
+      if (taskContext != null) {
+        // there is no end of partition callback for a map function, so the lookup index is released with the task
+        AddedValueSource source = valueSource;
+        taskContext.addTaskCompletionListener((TaskCompletionListener) context -> source.close());
+      }
+    }
+
+    // the finalizer of MurmurHash3, which spreads consecutive partition ids over the whole seed space
+    private static long mix(long value) {
+      value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+      value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+      return value ^ (value >>> 33);
+    }
+  }
+}
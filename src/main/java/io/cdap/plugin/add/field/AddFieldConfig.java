@@ -23,6 +23,10 @@ import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.etl.api.FailureCollector;
 
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import javax.annotation.Nullable;
 
 /**
@@ -32,10 +36,25 @@ public class AddFieldConfig extends PluginConfig {
   public static final String FIELD_NAME = "fieldName";
   public static final String FIELD_VALUE = "fieldValue";
   public static final String AS_UUID = "asUUID";
+  public static final String UUID_GENERATOR = "uuidGenerator";
+  public static final String HASH_FIELDS = "hashFields";
+  public static final String HASH_BUCKETS = "hashBuckets";
+  public static final String AS_SEQUENCE = "asSequence";
+  public static final String AS_TIMESTAMP = "asTimestamp";
+  public static final String TIMESTAMP_GRANULARITY = "timestampGranularity";
+  public static final String TIMESTAMP_FORMAT = "timestampFormat";
+  public static final String LOOKUP_FILE = "lookupFile";
+  public static final String LOOKUP_KEY_FIELD = "lookupKeyField";
+  public static final String COLLISION_POLICY = "collisionPolicy";
+  public static final String METRICS_SAMPLE_INTERVAL = "metricsSampleInterval";
+  public static final String ERROR_SAMPLE_INTERVAL = "errorSampleInterval";
+  static final int MAX_HASH_BUCKETS = 65536;
 
   @Name(FIELD_NAME)
-  @Description("The name of the field to add. Must not already exist as an input field. The field type will be " +
-    "a nullable string.")
+  @Description("The name of the field to add. An input field with the same name is resolved by 'collisionPolicy'. " +
+    "The field is a string, or a long for sequence IDs, an int for hash buckets, a timestamp for unformatted " +
+    "timestamps, and a nullable string for lookups. A path of field names separated by '.', such as " +
+    "'header.meta.id', adds the field to a nested record.")
   private String fieldName;
 
   @Macro
@@ -49,6 +68,90 @@ public class AddFieldConfig extends PluginConfig {
   @Description("Generate a new UUID for the new field. If this is not true, 'fieldValue' must be specified.")
   private Boolean asUUID;
 
+  @Nullable
+  @Name(UUID_GENERATOR)
+  @Description("How UUIDs are generated when 'asUUID' is true. 'secure' uses a shared secure random generator, " +
+    "'fast' uses a per-thread random generator that does not contend across threads but has only 64 bits of " +
+    "state, so its UUIDs are predictable and must not be used where they have to be unguessable, and 'time-ordered' " +
+    "generates version 7 UUIDs that sort by creation time. Defaults to 'secure'.")
+  private String uuidGenerator;
+
+  @Nullable
+  @Name(HASH_FIELDS)
+  @Description("Comma separated list of input fields to hash into the new field. The value is a 128 bit " +
+    "MurmurHash3 of the fields, as 32 hex digits, so records with the same values for these fields always get the " +
+    "same value. If this is set, 'fieldValue' must not be specified and 'asUUID' must not be true.")
+  private String hashFields;
+
+  @Nullable
+  @Name(HASH_BUCKETS)
+  @Description("Reduce the hash of the hash fields to a bucket number from 0 up to but not including this number, " +
+    "so the new field is of type int and can be used to salt or partition skewed keys. Buckets are the same in " +
+    "every run. Must be between 1 and 65536, and can only be set with hash fields.")
+  private Integer hashBuckets;
+
+  @Nullable
+  @Name(AS_SEQUENCE)
+  @Description("Generate an increasing 64 bit ID for the new field, which is then of type long. IDs are made of " +
+    "the time, a stripe for the task and a counter, so tasks never need to coordinate. On Spark, the stripe is the " +
+    "partition of the task, so IDs are unique across the stage if it has at most 4096 partitions. On MapReduce, " +
+    "IDs are only guaranteed to be unique within a task. If this is true, 'fieldValue' must not be specified and " +
+    "'asUUID' must not be true.")
+  private Boolean asSequence;
+
+  @Nullable
+  @Name(AS_TIMESTAMP)
+  @Description("Set the new field to the processing time, as a timestamp, or as a string if 'timestampFormat' is " +
+    "specified. If this is true, 'fieldValue' must not be specified and no other value can be generated.")
+  private Boolean asTimestamp;
+
+  @Nullable
+  @Name(TIMESTAMP_GRANULARITY)
+  @Description("How often the processing time changes. 'record' reads the clock for every record, 'millisecond' " +
+    "and 'second' truncate the time, and 'task' uses the same time for every record of a task. Coarser " +
+    "granularities reuse the value until the clock moves on. Defaults to 'record'.")
+  private String timestampGranularity;
+
+  @Nullable
+  @Name(TIMESTAMP_FORMAT)
+  @Description("Format the processing time as a string with this java.time.format.DateTimeFormatter pattern, in " +
+    "UTC, such as 'yyyy-MM-dd HH:mm:ss'. The field is a timestamp if this is not specified.")
+  private String timestampFormat;
+
+  @Macro
+  @Nullable
+  @Name(LOOKUP_FILE)
+  @Description("Path of a CSV file of 'key,value' lines, with a '.csv' extension, on the local file system of every " +
+    "worker. Other formats, such as Avro, are not supported. The new field is set to the value of the key in the " +
+    "'lookupKeyField' input field, or null if the key is not in the file. The file is indexed into a memory mapped " +
+    "file once, and the index is shared by every task on the worker until the last of them finishes.")
+  private String lookupFile;
+
+  @Nullable
+  @Name(LOOKUP_KEY_FIELD)
+  @Description("The input field whose value is looked up in the lookup file. Must be a string, int or long.")
+  private String lookupKeyField;
+
+  @Nullable
+  @Name(COLLISION_POLICY)
+  @Description("What to do when an input record already contains a field with the name of an added field. " +
+    "'error' sends the record to the error dataset, 'overwrite' replaces the input field, 'skip' keeps the input " +
+    "field and does not add the field, and 'rename' adds the field with a numeric suffix. The decision is made " +
+    "once for every distinct input schema. Defaults to 'error'.")
+  private String collisionPolicy;
+
+  @Nullable
+  @Name(METRICS_SAMPLE_INTERVAL)
+  @Description("Time one out of every this many records and publish the time per record as a histogram of " +
+    "stage metrics. Timing is disabled if this is empty or 0.")
+  private Integer metricsSampleInterval;
+
+  @Nullable
+  @Name(ERROR_SAMPLE_INTERVAL)
+  @Description("Send one out of every this many records that fail with the same error to the error dataset, and " +
+    "only count the others in stage metrics. Every failing record is sent if this is empty or 1.")
+  private Integer errorSampleInterval;
+
   public AddFieldConfig() {
   }
 
@@ -62,6 +165,18 @@ public class AddFieldConfig extends PluginConfig {
     fieldName = builder.fieldName;
     fieldValue = builder.fieldValue;
     asUUID = builder.asUUID;
+    uuidGenerator = builder.uuidGenerator;
+    hashFields = builder.hashFields;
+    hashBuckets = builder.hashBuckets;
+    asSequence = builder.asSequence;
+    asTimestamp = builder.asTimestamp;
+    timestampGranularity = builder.timestampGranularity;
+    timestampFormat = builder.timestampFormat;
+    lookupFile = builder.lookupFile;
+    lookupKeyField = builder.lookupKeyField;
+    collisionPolicy = builder.collisionPolicy;
+    metricsSampleInterval = builder.metricsSampleInterval;
+    errorSampleInterval = builder.errorSampleInterval;
   }
 
   public static Builder builder() {
@@ -72,7 +187,19 @@ public class AddFieldConfig extends PluginConfig {
     return builder()
       .setFieldName(copy.fieldName)
       .setFieldValue(copy.fieldValue)
-      .setAsUUID(copy.asUUID);
+      .setAsUUID(copy.asUUID)
+      .setUUIDGenerator(copy.uuidGenerator)
+      .setHashFields(copy.hashFields)
+      .setHashBuckets(copy.hashBuckets)
+      .setAsSequence(copy.asSequence)
+      .setAsTimestamp(copy.asTimestamp)
+      .setTimestampGranularity(copy.timestampGranularity)
+      .setTimestampFormat(copy.timestampFormat)
+      .setLookupFile(copy.lookupFile)
+      .setLookupKeyField(copy.lookupKeyField)
+      .setCollisionPolicy(copy.collisionPolicy)
+      .setMetricsSampleInterval(copy.metricsSampleInterval)
+      .setErrorSampleInterval(copy.errorSampleInterval);
   }
 
   public String getFieldName() {
@@ -88,11 +215,112 @@ public class AddFieldConfig extends PluginConfig {
     return asUUID == null ? false : asUUID;
   }
 
+  /**
+   * Returns the configured UUID generator, or null if the configured value is not a known generator.
+   */
+  @Nullable
+  public UUIDGenerator getUUIDGenerator() {
+    return uuidGenerator == null || uuidGenerator.isEmpty() ?
+      UUIDGenerator.SECURE : UUIDGenerator.fromValue(uuidGenerator);
+  }
+
+  /**
+   * Returns the names of the fields to hash, or an empty list if the value is not a hash.
+   */
+  public List<String> getHashFields() {
+    List<String> fields = new ArrayList<>();
+    if (hashFields == null) {
+      return fields;
+    }
+    for (String field : hashFields.split(",")) {
+      field = field.trim();
+      if (!field.isEmpty()) {
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Returns the number of hash buckets, or 0 if the hash is not reduced to a bucket.
+   */
+  public int getHashBuckets() {
+    return hashBuckets == null ? 0 : hashBuckets;
+  }
+
+  public Boolean getAsSequence() {
+    return asSequence == null ? false : asSequence;
+  }
+
+  public Boolean getAsTimestamp() {
+    return asTimestamp == null ? false : asTimestamp;
+  }
+
+  /**
+   * Returns the configured timestamp granularity, or null if the configured value is not a known granularity.
+   */
+  @Nullable
+  TimestampGenerator.Granularity getTimestampGranularity() {
+    return timestampGranularity == null || timestampGranularity.isEmpty() ?
+      TimestampGenerator.Granularity.RECORD : TimestampGenerator.Granularity.fromValue(timestampGranularity);
+  }
+
+  @Nullable
+  public String getTimestampFormat() {
+    return timestampFormat == null || timestampFormat.isEmpty() ? null : timestampFormat;
+  }
+
+  @Nullable
+  public String getLookupFile() {
+    return lookupFile == null || lookupFile.isEmpty() ? null : lookupFile;
+  }
+
+  @Nullable
+  public String getLookupKeyField() {
+    return lookupKeyField == null || lookupKeyField.isEmpty() ? null : lookupKeyField;
+  }
+
+  /**
+   * Returns whether values of the given schema can be used as lookup keys.
+   */
+  static boolean isLookupKeySupported(Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (nonNullable.getType()) {
+      case INT:
+      case LONG:
+      case STRING:
+        return nonNullable.getLogicalType() == null;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the configured collision policy, or null if the configured value is not a known policy.
+   */
+  @Nullable
+  public CollisionPolicy getCollisionPolicy() {
+    return collisionPolicy == null || collisionPolicy.isEmpty() ?
+      CollisionPolicy.ERROR : CollisionPolicy.fromValue(collisionPolicy);
+  }
+
+  public int getMetricsSampleInterval() {
+    return metricsSampleInterval == null ? 0 : metricsSampleInterval;
+  }
+
+  public int getErrorSampleInterval() {
+    return errorSampleInterval == null ? 1 : errorSampleInterval;
+  }
+
   public void validate(FailureCollector failureCollector, @Nullable Schema inputSchema) {
+    List<String> hashFields = getHashFields();
     if (!containsMacro(FIELD_VALUE)) {
-      if (fieldValue == null && !getAsUUID()) {
+      boolean lookup = getLookupFile() != null || containsMacro(LOOKUP_FILE);
+      if (fieldValue == null && !getAsUUID() && hashFields.isEmpty() && !getAsSequence() && !lookup &&
+        !getAsTimestamp()) {
         failureCollector.addFailure("Must specify a field value or set 'Generate UUID as Value' to true.",
-                                    null)
+                                    "Alternatively, specify fields to hash, a lookup file, or generate sequence " +
+                                      "IDs or timestamps.")
           .withConfigProperty(FIELD_VALUE)
           .withConfigProperty(AS_UUID);
       }
@@ -103,16 +331,149 @@ public class AddFieldConfig extends PluginConfig {
           .withConfigProperty(FIELD_VALUE)
           .withConfigProperty(AS_UUID);
       }
+
+      if (!hashFields.isEmpty() && (fieldValue != null || getAsUUID())) {
+        failureCollector.addFailure("Must not specify a field value or generate UUIDs when hashing fields.",
+                                    "Remove the hash fields, or the field value and 'Generate UUID as Value'.")
+          .withConfigProperty(HASH_FIELDS);
+      }
+
+      if (getAsSequence() && (fieldValue != null || getAsUUID() || !hashFields.isEmpty())) {
+        failureCollector.addFailure("Must not specify a field value, generate UUIDs or hash fields when " +
+                                      "generating sequence IDs.",
+                                    "Set 'Generate Sequence ID as Value' to false, or remove the other values.")
+          .withConfigProperty(AS_SEQUENCE);
+      }
+
+      if (lookup && (fieldValue != null || getAsUUID() || !hashFields.isEmpty() || getAsSequence())) {
+        failureCollector.addFailure("Must not specify a field value, generate UUIDs, hash fields or generate " +
+                                      "sequence IDs when looking up values.",
+                                    "Remove the lookup file, or the other values.")
+          .withConfigProperty(LOOKUP_FILE);
+      }
+
+      if (getAsTimestamp() && (fieldValue != null || getAsUUID() || !hashFields.isEmpty() || getAsSequence() ||
+        lookup)) {
+        failureCollector.addFailure("Must not specify a field value or generate any other value when generating " +
+                                      "timestamps.",
+                                    "Set 'Generate Timestamp as Value' to false, or remove the other values.")
+          .withConfigProperty(AS_TIMESTAMP);
+      }
+    }
+
+    if (hashBuckets != null) {
+      if (hashBuckets < 1 || hashBuckets > MAX_HASH_BUCKETS) {
+        failureCollector.addFailure(String.format("Invalid number of hash buckets %d.", hashBuckets),
+                                    String.format("Provide a number between 1 and %d.", MAX_HASH_BUCKETS))
+          .withConfigProperty(HASH_BUCKETS);
+      }
+      if (hashFields.isEmpty()) {
+        failureCollector.addFailure("Hash buckets can only be specified with hash fields.",
+                                    "Specify the fields to hash, or remove the number of hash buckets.")
+          .withConfigProperty(HASH_BUCKETS)
+          .withConfigProperty(HASH_FIELDS);
+      }
+    }
+
+    if (getTimestampGranularity() == null) {
+      failureCollector.addFailure(String.format("Invalid timestamp granularity '%s'.", timestampGranularity),
+                                  "Use one of 'record', 'millisecond', 'second' or 'task'.")
+        .withConfigProperty(TIMESTAMP_GRANULARITY);
+    }
+
+    if (getTimestampFormat() != null) {
+      try {
+        DateTimeFormatter.ofPattern(timestampFormat);
+      } catch (IllegalArgumentException e) {
+        failureCollector.addFailure(String.format("Invalid timestamp format '%s': %s", timestampFormat,
+                                                  e.getMessage()),
+                                    "Provide a java.time.format.DateTimeFormatter pattern.")
+          .withConfigProperty(TIMESTAMP_FORMAT);
+      }
+    }
+
+    if ((getLookupFile() != null || containsMacro(LOOKUP_FILE)) != (getLookupKeyField() != null)) {
+      failureCollector.addFailure("A lookup file and a lookup key field must be specified together.", null)
+        .withConfigProperty(LOOKUP_FILE)
+        .withConfigProperty(LOOKUP_KEY_FIELD);
+    }
+
+    if (!containsMacro(LOOKUP_FILE) && getLookupFile() != null &&
+      !getLookupFile().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+      failureCollector.addFailure(String.format("Lookup file '%s' is not a CSV file.", getLookupFile()),
+                                  "Only CSV files of 'key,value' lines with a '.csv' extension are supported. " +
+                                    "Convert Avro or other files to CSV.")
+        .withConfigProperty(LOOKUP_FILE);
+    }
+
+    if (getUUIDGenerator() == null) {
+      failureCollector.addFailure(String.format("Invalid UUID generator '%s'.", uuidGenerator),
+                                  "Use one of 'secure', 'fast' or 'time-ordered'.")
+        .withConfigProperty(UUID_GENERATOR);
+    }
+
+    if (getCollisionPolicy() == null) {
+      failureCollector.addFailure(String.format("Invalid collision policy '%s'.", collisionPolicy),
+                                  "Use one of 'error', 'overwrite', 'skip' or 'rename'.")
+        .withConfigProperty(COLLISION_POLICY);
+    }
+
+    if (getMetricsSampleInterval() < 0) {
+      failureCollector.addFailure("Metrics sample interval must not be negative.",
+                                  "Provide 0 to disable timing, or a positive interval.")
+        .withConfigProperty(METRICS_SAMPLE_INTERVAL);
+    }
+
+    if (getErrorSampleInterval() < 1) {
+      failureCollector.addFailure("Error sample interval must be positive.",
+                                  "Provide 1 to send every failing record to the error dataset, or a larger interval.")
+        .withConfigProperty(ERROR_SAMPLE_INTERVAL);
     }
 
     if (inputSchema != null) {
-      for (Schema.Field field : inputSchema.getFields()) {
-        if (field.getName().equals(fieldName)) {
-          failureCollector.addFailure(String.format("Field '%s' already exists in the input schema.", fieldName),
-                                      "Provide field that not present the input schema.")
-            .withConfigProperty(FIELD_NAME)
-            .withInputSchemaField(fieldName);
-          break;
+      if (fieldName != null && getCollisionPolicy() != null) {
+        try {
+          if (AddField.createOutputPlan(inputSchema, this).getCollisionMessage() != null) {
+            failureCollector.addFailure(String.format("Field '%s' already exists in the input schema.", fieldName),
+                                        "Provide field that not present the input schema.")
+              .withConfigProperty(FIELD_NAME)
+              .withInputSchemaField(fieldName);
+          }
+        } catch (IllegalArgumentException e) {
+          failureCollector.addFailure(e.getMessage(), "Provide a path of record fields that exist in the input.")
+            .withConfigProperty(FIELD_NAME);
+        }
+      }
+
+      for (String hashField : hashFields) {
+        Schema.Field field = inputSchema.getField(hashField);
+        if (field == null) {
+          failureCollector.addFailure(String.format("Hash field '%s' does not exist in the input schema.", hashField),
+                                      "Provide fields that are present in the input schema.")
+            .withConfigElement(HASH_FIELDS, hashField);
+        } else if (!RecordHasher.isSupported(field.getSchema())) {
+          failureCollector.addFailure(String.format("Hash field '%s' is of unsupported type '%s'.", hashField,
+                                                    field.getSchema().getDisplayName()),
+                                      "Hash fields must be of a simple type, such as string, long or bytes.")
+            .withConfigElement(HASH_FIELDS, hashField)
+            .withInputSchemaField(hashField);
+        }
+      }
+
+      String keyField = getLookupKeyField();
+      if (keyField != null) {
+        Schema.Field field = inputSchema.getField(keyField);
+        if (field == null) {
+          failureCollector.addFailure(String.format("Lookup key field '%s' does not exist in the input schema.",
+                                                    keyField),
+                                      "Provide a field that is present in the input schema.")
+            .withConfigProperty(LOOKUP_KEY_FIELD);
+        } else if (!isLookupKeySupported(field.getSchema())) {
+          failureCollector.addFailure(String.format("Lookup key field '%s' is of unsupported type '%s'.", keyField,
+                                                    field.getSchema().getDisplayName()),
+                                      "Lookup key fields must be of type string, int or long.")
+            .withConfigProperty(LOOKUP_KEY_FIELD)
+            .withInputSchemaField(keyField);
         }
       }
     }
@@ -125,6 +486,18 @@ public class AddFieldConfig extends PluginConfig {
     private String fieldName;
     private String fieldValue;
     private Boolean asUUID;
+    private String uuidGenerator;
+    private String hashFields;
+    private Integer hashBuckets;
+    private Boolean asSequence;
+    private Boolean asTimestamp;
+    private String timestampGranularity;
+    private String timestampFormat;
+    private String lookupFile;
+    private String lookupKeyField;
+    private String collisionPolicy;
+    private Integer metricsSampleInterval;
+    private Integer errorSampleInterval;
 
     private Builder() {
     }
@@ -144,8 +517,68 @@ public class AddFieldConfig extends PluginConfig {
       return this;
     }
 
+    public Builder setUUIDGenerator(String uuidGenerator) {
+      this.uuidGenerator = uuidGenerator;
+      return this;
+    }
+
+    public Builder setHashFields(String hashFields) {
+      this.hashFields = hashFields;
+      return this;
+    }
+
+    public Builder setHashBuckets(Integer hashBuckets) {
+      this.hashBuckets = hashBuckets;
+      return this;
+    }
+
+    public Builder setAsSequence(Boolean asSequence) {
+      this.asSequence = asSequence;
+      return this;
+    }
+
+    public Builder setAsTimestamp(Boolean asTimestamp) {
+      this.asTimestamp = asTimestamp;
+      return this;
+    }
+
+    public Builder setTimestampGranularity(String timestampGranularity) {
+      this.timestampGranularity = timestampGranularity;
+      return this;
+    }
+
+    public Builder setTimestampFormat(String timestampFormat) {
+      this.timestampFormat = timestampFormat;
+      return this;
+    }
+
+    public Builder setLookupFile(String lookupFile) {
+      this.lookupFile = lookupFile;
+      return this;
+    }
+
+    public Builder setLookupKeyField(String lookupKeyField) {
+      this.lookupKeyField = lookupKeyField;
+      return this;
+    }
+
+    public Builder setCollisionPolicy(String collisionPolicy) {
+      this.collisionPolicy = collisionPolicy;
+      return this;
+    }
+
+    public Builder setMetricsSampleInterval(Integer metricsSampleInterval) {
+      this.metricsSampleInterval = metricsSampleInterval;
+      return this;
+    }
+
+    public Builder setErrorSampleInterval(Integer errorSampleInterval) {
+      this.errorSampleInterval = errorSampleInterval;
+      return this;
+    }
+
     public AddFieldConfig build() {
-      return new AddFieldConfig(fieldName, fieldValue, asUUID);
+      return new AddFieldConfig(this);
     }
   }
 }
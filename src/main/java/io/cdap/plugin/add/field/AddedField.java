@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.add.field;
+
+import javax.annotation.Nullable;
+
+/**
+ * A field that {@link MultiFieldAdder} adds to each record, as configured.
+ */
+final class AddedField {
+  private final String name;
+  private final String value;
+  private final FieldType type;
+
+  AddedField(String name, @Nullable String value, FieldType type) {
+    this.name = name;
+    this.value = value;
+    this.type = type;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the configured value, or null if it is not known yet because it contains a macro.
+   */
+  @Nullable
+  String getValue() {
+    return value;
+  }
+
+  FieldType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the value parsed into the object to set on records.
+   *
+   * @throws IllegalArgumentException if the value is not valid for the field type
+   */
+  @Nullable
+  Object parseValue() {
+    try {
+      return type.parse(value);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Invalid value for field '%s': %s", name, e.getMessage()), e);
+    }
+  }
+}
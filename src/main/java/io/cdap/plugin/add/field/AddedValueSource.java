@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import javax.annotation.Nullable;
+
+/**
+ * Computes the value of the field that {@link AddField} and {@link AddFieldCompute} add to each record, as
+ * described by an {@link AddFieldConfig}. A source is created for every task or partition, and is not thread safe.
+ */
+final class AddedValueSource {
+  private final AddFieldConfig config;
+  private final UUIDGenerator uuidGenerator;
+  private final SplittableRandom random;
+  private final RecordHasher hasher;
+  private final SequenceGenerator sequence;
+  private final LookupIndex lookup;
+  private final TimestampGenerator timestamps;
+
+  /**
+   * Creates a source for the given config.
+   *
+   * @param stripe the sequence stripe of the task, only used for sequence values
+   * @param random the source of UUID randomness, or null to use the default one of the UUID generator
+   * @throws IOException if the lookup file cannot be read
+   */
+  AddedValueSource(AddFieldConfig config, int stripe, @Nullable SplittableRandom random) throws IOException {
+    this.config = config;
+    this.uuidGenerator = config.getUUIDGenerator();
+    this.random = random;
+    List<String> hashFields = config.getHashFields();
+    this.hasher = hashFields.isEmpty() ? null : new RecordHasher(hashFields, config.getHashBuckets());
+    this.sequence = config.getAsSequence() ? new SequenceGenerator(stripe) : null;
+    // every task in the JVM shares the same index
+    this.lookup = config.getLookupFile() == null ? null : LookupIndex.get(new File(config.getLookupFile()));
+    this.timestamps = config.getAsTimestamp() ?
+      new TimestampGenerator(config.getTimestampGranularity(), config.getTimestampFormat()) : null;
+  }
+
+  /**
+   * Returns the value of the added field for the given record.
+   */
+  @Nullable
+  Object next(StructuredRecord record) {
+    if (hasher != null) {
+      return config.getHashBuckets() > 0 ? hasher.bucket(record) : hasher.hash(record);
+    }
+    if (sequence != null) {
+      return sequence.next();
+    }
+    if (lookup != null) {
+      Object key = record.get(config.getLookupKeyField());
+      return key == null ? null : lookup.get(key.toString());
+    }
+    if (timestamps != null) {
+      return timestamps.next();
+    }
+    if (!config.getAsUUID()) {
+      return config.getFieldValue();
+    }
+    return (random == null ? uuidGenerator.generate() : uuidGenerator.generate(random)).toString();
+  }
+
+  /**
+   * Releases the lookup index, if any. The source must not be used afterwards.
+   */
+  void close() {
+    if (lookup != null) {
+      lookup.release();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import javax.annotation.Nullable;
+
+/**
+ * What to do when an input record already contains a field with the name of an added field. The policy is applied
+ * once per distinct input schema, when its output plan is created, and not for every record.
+ */
+public enum CollisionPolicy {
+  /**
+   * Sends the record to the error dataset.
+   */
+  ERROR("error"),
+
+  /**
+   * Replaces the input field with the added field, at the position of the input field.
+   */
+  OVERWRITE("overwrite"),
+
+  /**
+   * Keeps the input field and its value, and does not add the field.
+   */
+  SKIP("skip"),
+
+  /**
+   * Adds the field under its name followed by the first of '_1', '_2', ... that is not already taken.
+   */
+  RENAME("rename");
+
+  private final String value;
+
+  CollisionPolicy(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the policy with the given configuration value, or null if there is none.
+   */
+  @Nullable
+  public static CollisionPolicy fromValue(String value) {
+    for (CollisionPolicy policy : values()) {
+      if (policy.value.equalsIgnoreCase(value)) {
+        return policy;
+      }
+    }
+    return null;
+  }
+}
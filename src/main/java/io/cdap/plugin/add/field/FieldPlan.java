@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.StageContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable, compiled form of the fields that {@link MultiFieldAdder} adds to each record. It is built once from
+ * the parsed configuration so that per-record work only has to walk the precomputed names and values. Constant
+ * fields come first, followed by run metadata fields, generated fields and the rule field, if any, so that all of them
+ * are set in a single copy of the record. The values of generated fields and the rule field change from record to
+ * record, so their slots in the values are null and are filled in by the transform.
+ */
+final class FieldPlan {
+  private static final String COLLISION_FORMAT = "Field '%s' already exists in input";
+  private final String[] names;
+  private final Object[] values;
+  private final List<Schema.Field> fields;
+  private final Set<String> nameSet;
+  private final int generatedStart;
+
+  private FieldPlan(String[] names, Object[] values, List<Schema.Field> fields, int generatedStart) {
+    this.names = names;
+    this.generatedStart = generatedStart;
+    this.values = values;
+    this.fields = Collections.unmodifiableList(fields);
+    this.nameSet = new HashSet<>(Arrays.asList(names));
+  }
+
+  /**
+   * Compiles a plan from the configured fields, preserving their iteration order. Values are parsed into their
+   * typed objects here, and metadata is read from the given context, once, rather than for every record.
+   *
+   * @param addedFields the constant fields to add
+   * @param metadataFields the run metadata fields to add, keyed by name
+   * @param generatedFields the generated fields to add
+   * @param ruleField the name of the field whose value is chosen by rules, or null if there is none
+   * @param context the context to read metadata from, or null if only the output schema is needed, in which case
+   *   metadata values are null
+   * @throws IllegalArgumentException if a value is not valid for its field type, or an argument is not valid for its
+   *   generator
+   */
+  static FieldPlan compile(Collection<AddedField> addedFields, Map<String, MetadataSource> metadataFields,
+                           Collection<GeneratedField> generatedFields, @Nullable String ruleField,
+                           @Nullable StageContext context) {
+    int size = addedFields.size() + metadataFields.size() + generatedFields.size() + (ruleField == null ? 0 : 1);
+    String[] names = new String[size];
+    Object[] values = new Object[size];
+    List<Schema.Field> fields = new ArrayList<>(size);
+    int i = 0;
+    for (AddedField addedField : addedFields) {
+      names[i] = addedField.getName();
+      values[i] = addedField.parseValue();
+      fields.add(Schema.Field.of(addedField.getName(), addedField.getType().getSchema()));
+      i++;
+    }
+    for (Map.Entry<String, MetadataSource> entry : metadataFields.entrySet()) {
+      names[i] = entry.getKey();
+      values[i] = context == null ? null : entry.getValue().resolve(context);
+      fields.add(Schema.Field.of(entry.getKey(), entry.getValue().getSchema()));
+      i++;
+    }
+    int generatedStart = i;
+    for (GeneratedField generatedField : generatedFields) {
+      names[i] = generatedField.getName();
+      fields.add(Schema.Field.of(generatedField.getName(), generatedField.getSchema()));
+      i++;
+    }
+    if (ruleField != null) {
+      names[i] = ruleField;
+      fields.add(Schema.Field.of(ruleField, Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    }
+    return new FieldPlan(names, values, fields, generatedStart);
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  String getName(int i) {
+    return names[i];
+  }
+
+  /**
+   * Returns the index of the first generated field, which is followed by the other generated fields in order.
+   */
+  int getGeneratedStart() {
+    return generatedStart;
+  }
+
+  @Nullable
+  Object getValue(int i) {
+    return values[i];
+  }
+
+  /**
+   * Returns the values of the fields in order, without copying them. The array must not be modified.
+   */
+  Object[] getValues() {
+    return values;
+  }
+
+  /**
+   * Plans the output for records of the given input schema, which are the input fields followed by the added fields.
+   * This is meant to be called once per input schema, and not for every record.
+   */
+  OutputPlan createOutputPlan(Schema inputSchema, CollisionPolicy policy) {
+    return OutputPlan.create(inputSchema, fields, nameSet, policy, COLLISION_FORMAT);
+  }
+
+  /**
+   * Returns the key of the plans for the given policy in the {@link SharedPlanCache}.
+   */
+  String getPlanKey(CollisionPolicy policy) {
+    return SharedPlanCache.planKey(fields, policy, COLLISION_FORMAT);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Types that a constant field added by {@link MultiFieldAdder} can have, along with how to parse a configured value
+ * into the Java object that a {@link io.cdap.cdap.api.data.format.StructuredRecord} holds for that type.
+ */
+public enum FieldType {
+  STRING("string", Schema.of(Schema.Type.STRING)) {
+    @Override
+    Object parseValue(String value) {
+      return value;
+    }
+  },
+  BOOLEAN("boolean", Schema.of(Schema.Type.BOOLEAN)) {
+    @Override
+    Object parseValue(String value) {
+      if ("true".equalsIgnoreCase(value)) {
+        return true;
+      }
+      if ("false".equalsIgnoreCase(value)) {
+        return false;
+      }
+      throw new IllegalArgumentException("Expected 'true' or 'false'.");
+    }
+  },
+  INT("int", Schema.of(Schema.Type.INT)) {
+    @Override
+    Object parseValue(String value) {
+      return Integer.parseInt(value.trim());
+    }
+  },
+  LONG("long", Schema.of(Schema.Type.LONG)) {
+    @Override
+    Object parseValue(String value) {
+      return Long.parseLong(value.trim());
+    }
+  },
+  FLOAT("float", Schema.of(Schema.Type.FLOAT)) {
+    @Override
+    Object parseValue(String value) {
+      return Float.parseFloat(value.trim());
+    }
+  },
+  DOUBLE("double", Schema.of(Schema.Type.DOUBLE)) {
+    @Override
+    Object parseValue(String value) {
+      return Double.parseDouble(value.trim());
+    }
+  },
+  DATE("date", Schema.of(Schema.LogicalType.DATE)) {
+    @Override
+    Object parseValue(String value) {
+      return Math.toIntExact(LocalDate.parse(value.trim()).toEpochDay());
+    }
+  },
+  TIMESTAMP("timestamp", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)) {
+    @Override
+    Object parseValue(String value) {
+      Instant instant = Instant.parse(value.trim());
+      return Math.addExact(TimeUnit.SECONDS.toMicros(instant.getEpochSecond()),
+                           TimeUnit.NANOSECONDS.toMicros(instant.getNano()));
+    }
+  };
+
+  private final String value;
+  private final Schema schema;
+
+  FieldType(String value, Schema schema) {
+    this.value = value;
+    this.schema = schema;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the nullable schema of fields of this type.
+   */
+  Schema getSchema() {
+    return Schema.nullableOf(schema);
+  }
+
+  /**
+   * Parses a configured value into the object to set on records.
+   *
+   * @throws IllegalArgumentException if the value is not valid for this type
+   */
+  @Nullable
+  Object parse(@Nullable String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return parseValue(value);
+    } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+      throw new IllegalArgumentException(String.format("'%s' is not a valid %s value.", value, this.value), e);
+    }
+  }
+
+  abstract Object parseValue(String value);
+
+  /**
+   * Returns the type with the given name, or null if there is none.
+   */
+  @Nullable
+  public static FieldType fromValue(String value) {
+    for (FieldType type : values()) {
+      if (type.value.equalsIgnoreCase(value)) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Parses the field value property of MultiFieldAdder, a comma separated list of 'name:value' or
+ * 'name:value:type' pairs, in a single pass over the input.
+ *
+ * <ul>
+ *   <li>A backslash makes the next character literal, so '\,' and '\:' can be used in names and values.</li>
+ *   <li>Any part of a name, value or type can be enclosed in double quotes, inside which ',' and ':' are literal.
+ *   A backslash inside quotes also makes the next character literal.</li>
+ *   <li>Macros, starting with '${' and ending with the matching '}', are kept as they are, including any ',' or ':'
+ *   they contain.</li>
+ *   <li>The name ends at the first separating ':'. If there is more than one, the type starts after the last one,
+ *   so values of typed fields may contain ':' even without quoting. When parsing field values, the text after the
+ *   last ':' is only the type if it names a {@link FieldType} or is a macro, and is part of the value otherwise, so
+ *   that untyped values such as '12:30' keep their ':'.</li>
+ * </ul>
+ *
+ * Characters are copied once into a reused buffer, and each name, value and type is created from it directly, so
+ * parsing takes time linear in the length of the input. Positions in error messages count characters from 1.
+ */
+final class FieldValueParser {
+  private final String input;
+  private final boolean fieldTypes;
+  private final StringBuilder buffer = new StringBuilder();
+  private final List<Pair> pairs = new ArrayList<>();
+
+  // state of the pair being parsed
+  private int pairStart;
+  private String name;
+  private boolean nameMacro;
+  private int valueStart;
+  // buffer offset and input position of the last separator after the name, or -1 if there is none
+  private int lastSeparator;
+  private int lastSeparatorPosition;
+  // buffer offsets of the first macro start and the last macro end, or -1 if there is no macro
+  private int firstMacroStart;
+  private int lastMacroEnd;
+
+  private FieldValueParser(String input, boolean fieldTypes) {
+    this.input = input;
+    this.fieldTypes = fieldTypes;
+  }
+
+  /**
+   * Parses the given property value. Pairs are returned in the order they appear in, including ones without a value.
+   *
+   * @throws IllegalArgumentException if a quote, escape or macro is not terminated
+   */
+  static List<Pair> parse(@Nullable String input) {
+    FieldValueParser parser = new FieldValueParser(input == null ? "" : input, false);
+    parser.parse();
+    return parser.pairs;
+  }
+
+  /**
+   * Parses the given field value property, in which a pair only has a type if the text after its last separator is
+   * the name of a {@link FieldType} or a macro. Otherwise that text is part of the value, so 't:12:30' has the value
+   * '12:30' and no type.
+   *
+   * @throws IllegalArgumentException if a quote, escape or macro is not terminated
+   */
+  static List<Pair> parseFieldValues(@Nullable String input) {
+    FieldValueParser parser = new FieldValueParser(input == null ? "" : input, true);
+    parser.parse();
+    return parser.pairs;
+  }
+
+  private void parse() {
+    startPair(0);
+    int length = input.length();
+    int i = 0;
+    while (i < length) {
+      char c = input.charAt(i);
+      switch (c) {
+        case ',':
+          endPair();
+          startPair(i + 1);
+          i++;
+          break;
+        case ':':
+          separator(i);
+          i++;
+          break;
+        case '\\':
+          if (i + 1 == length) {
+            throw new IllegalArgumentException(String.format("Incomplete escape at character %d.", i + 1));
+          }
+          buffer.append(input.charAt(i + 1));
+          i += 2;
+          break;
+        case '"':
+          i = quoted(i);
+          break;
+        case '$':
+          if (i + 1 < length && input.charAt(i + 1) == '{') {
+            i = macro(i);
+          } else {
+            buffer.append(c);
+            i++;
+          }
+          break;
+        default:
+          buffer.append(c);
+          i++;
+      }
+    }
+    endPair();
+  }
+
+  private void startPair(int position) {
+    pairStart = position;
+    name = null;
+    nameMacro = false;
+    lastSeparator = -1;
+    firstMacroStart = -1;
+    lastMacroEnd = -1;
+    buffer.setLength(0);
+  }
+
+  private void separator(int position) {
+    if (name == null) {
+      name = buffer.toString();
+      nameMacro = firstMacroStart >= 0;
+      firstMacroStart = -1;
+      lastMacroEnd = -1;
+      buffer.setLength(0);
+      valueStart = position + 1;
+      return;
+    }
+    lastSeparator = buffer.length();
+    lastSeparatorPosition = position;
+    buffer.append(':');
+  }
+
+  private void endPair() {
+    if (name == null) {
+      if (buffer.length() > 0) {
+        pairs.add(new Pair(buffer.toString(), firstMacroStart >= 0, pairStart + 1));
+      }
+      return;
+    }
+    String type = lastSeparator < 0 ? null : buffer.substring(lastSeparator + 1);
+    boolean typeMacro = lastSeparator >= 0 && lastMacroEnd > lastSeparator;
+    if (type == null || fieldTypes && !typeMacro && FieldType.fromValue(type) == null) {
+      pairs.add(new Pair(name, nameMacro, pairStart + 1, buffer.toString(), firstMacroStart >= 0, valueStart + 1,
+                         null, false, 0));
+      return;
+    }
+    String value = buffer.substring(0, lastSeparator);
+    boolean valueMacro = firstMacroStart >= 0 && firstMacroStart < lastSeparator;
+    pairs.add(new Pair(name, nameMacro, pairStart + 1, value, valueMacro, valueStart + 1,
+                       type, typeMacro, lastSeparatorPosition + 2));
+  }
+
+  // appends the quoted text starting at the given quote, and returns the position after the closing quote
+  private int quoted(int start) {
+    int length = input.length();
+    int i = start + 1;
+    while (i < length) {
+      char c = input.charAt(i);
+      if (c == '"') {
+        return i + 1;
+      }
+      if (c == '\\') {
+        if (i + 1 == length) {
+          break;
+        }
+        c = input.charAt(++i);
+      }
+      buffer.append(c);
+      i++;
+    }
+    throw new IllegalArgumentException(String.format("Quote at character %d is not closed.", start + 1));
+  }
+
+  // appends the macro starting at the given '$' as it is, and returns the position after its closing brace
+  private int macro(int start) {
+    int length = input.length();
+    int depth = 0;
+    int i = start;
+    if (firstMacroStart < 0) {
+      firstMacroStart = buffer.length();
+    }
+    while (i < length) {
+      char c = input.charAt(i);
+      if (c == '\\' && i + 1 < length) {
+        buffer.append(c).append(input.charAt(i + 1));
+        i += 2;
+        continue;
+      }
+      buffer.append(c);
+      i++;
+      if (c == '$' && i < length && input.charAt(i) == '{') {
+        buffer.append('{');
+        i++;
+        depth++;
+      } else if (c == '}' && --depth == 0) {
+        lastMacroEnd = buffer.length();
+        return i;
+      }
+    }
+    throw new IllegalArgumentException(String.format("Macro at character %d is not closed.", start + 1));
+  }
+
+  /**
+   * A 'name:value' or 'name:value:type' pair, along with whether each part contains a macro and where it starts.
+   */
+  static final class Pair {
+    private final String name;
+    private final boolean nameMacro;
+    private final int position;
+    private final String value;
+    private final boolean valueMacro;
+    private final int valuePosition;
+    private final String type;
+    private final boolean typeMacro;
+    private final int typePosition;
+
+    private Pair(String name, boolean nameMacro, int position) {
+      this(name, nameMacro, position, null, false, 0, null, false, 0);
+    }
+
+    private Pair(String name, boolean nameMacro, int position, @Nullable String value, boolean valueMacro,
+                 int valuePosition, @Nullable String type, boolean typeMacro, int typePosition) {
+      this.name = name;
+      this.nameMacro = nameMacro;
+      this.position = position;
+      this.value = value;
+      this.valueMacro = valueMacro;
+      this.valuePosition = valuePosition;
+      this.type = type;
+      this.typeMacro = typeMacro;
+      this.typePosition = typePosition;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    boolean isNameMacro() {
+      return nameMacro;
+    }
+
+    /**
+     * Returns the position of the first character of the pair.
+     */
+    int getPosition() {
+      return position;
+    }
+
+    /**
+     * Returns the value, or null if the pair does not have one.
+     */
+    @Nullable
+    String getValue() {
+      return value;
+    }
+
+    boolean isValueMacro() {
+      return valueMacro;
+    }
+
+    int getValuePosition() {
+      return valuePosition;
+    }
+
+    /**
+     * Returns the type, or null if it is not specified.
+     */
+    @Nullable
+    String getType() {
+      return type;
+    }
+
+    boolean isTypeMacro() {
+      return typeMacro;
+    }
+
+    int getTypePosition() {
+      return typePosition;
+    }
+  }
+}
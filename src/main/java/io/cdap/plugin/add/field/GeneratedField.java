@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.StageContext;
+
+import javax.annotation.Nullable;
+
+/**
+ * A field that {@link MultiFieldAdder} adds to each record with a value from a {@link ValueGenerator}, as configured.
+ */
+final class GeneratedField {
+  private final String name;
+  private final ValueGeneratorFactory factory;
+  private final String argument;
+
+  GeneratedField(String name, ValueGeneratorFactory factory, @Nullable String argument) {
+    this.name = name;
+    this.factory = factory;
+    this.argument = argument;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the schema of the generated values.
+   *
+   * @throws IllegalArgumentException if the argument is not valid for the generator
+   */
+  Schema getSchema() {
+    try {
+      return factory.getSchema(argument);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Invalid argument for generated field '%s': %s",
+                                                       name, e.getMessage()), e);
+    }
+  }
+
+  ValueGenerator createGenerator(StageContext context) {
+    return factory.create(argument, context);
+  }
+}
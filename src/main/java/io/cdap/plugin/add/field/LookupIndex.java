@@ -0,0 +1,525 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.annotation.Nullable;
+
+/**
+ * A read-only map from string keys to string values, read from a CSV file of 'key,value' lines and stored in an
+ * index file that is memory mapped for lookups.
+ *
+ * The index file is an open addressing hash table with linear probing, followed by the entries:
+ *
+ * <ul>
+ *   <li>a header of the magic number, the number of table bits and the number of entries</li>
+ *   <li>a table of longs, each holding the top 24 bits of the key hash and the 40 bit file offset of the entry, or
+ *   0 for an empty slot. The table is at most half full.</li>
+ *   <li>entries, each the UTF-8 key and value preceded by their lengths. Entries never cross a segment boundary, so
+ *   the file can be mapped in segments of up to 1 GiB.</li>
+ * </ul>
+ *
+ * Indexes live outside the heap, and their pages are shared through the page cache by every process on the host
+ * that maps them. {@link #get(File)} hands out one instance per source file to every task in the JVM, and reuses an
+ * index file built by another process of the same user from the same version of the source file. Each task releases
+ * the instance with {@link #release()} when it is done, and the last one to do so unmaps it. Index files are
+ * kept in a directory under the temporary directory that only that user can access, since anyone who could write
+ * an index file there could change the values looked up. Lookups are thread safe.
+ *
+ * Fields in the CSV file can be enclosed in double quotes, inside which ',' is literal and '""' is a quote. The value
+ * is everything after the first separating ',', and blank lines are skipped. Quoted fields cannot span lines. If a
+ * key appears more than once, the first value is kept.
+ */
+final class LookupIndex {
+  private static final ConcurrentMap<String, FutureTask<LookupIndex>> INDEXES = new ConcurrentHashMap<>();
+  private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ,
+                                                                        PosixFilePermission.OWNER_WRITE,
+                                                                        PosixFilePermission.OWNER_EXECUTE);
+  private static final int MAGIC = 0x41464c31;
+  private static final int HEADER_BYTES = 16;
+  private static final int TAG_BITS = 24;
+  private static final int OFFSET_BITS = 64 - TAG_BITS;
+  private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+  private static final int SEGMENT_BITS = 30;
+
+  private MappedByteBuffer[] segments;
+  private final int segmentBits;
+  private final int segmentMask;
+  private final long tableMask;
+  private final long size;
+  // guarded by this index, and only set for indexes handed out by get
+  private String version;
+  private FutureTask<LookupIndex> task;
+  private int references;
+
+  private LookupIndex(File indexFile, int segmentBits) throws IOException {
+    this.segmentBits = segmentBits;
+    this.segmentMask = (1 << segmentBits) - 1;
+    this.segments = map(indexFile, FileChannel.MapMode.READ_ONLY, indexFile.length(), segmentBits);
+    if (getInt(0) != MAGIC) {
+      throw new IOException(String.format("File '%s' is not a lookup index.", indexFile));
+    }
+    this.tableMask = (1L << getInt(4)) - 1;
+    this.size = getLong(8);
+  }
+
+  // for building, through a writable mapping of a file that is not an index yet
+  private LookupIndex(MappedByteBuffer[] segments, int segmentBits, int tableBits) {
+    this.segments = segments;
+    this.segmentBits = segmentBits;
+    this.segmentMask = (1 << segmentBits) - 1;
+    this.tableMask = (1L << tableBits) - 1;
+    this.size = 0;
+  }
+
+  /**
+   * Returns the index of the given CSV file, building it if it is not already built. Every caller in the JVM gets
+   * the same instance for the same version of the file, and must {@link #release()} it once it no longer uses it.
+   *
+   * The first caller for a version builds the index while the others for that version wait for it. The build runs
+   * outside of the map of indexes, so callers for other files are not held up. If it fails, the next caller tries
+   * again.
+   */
+  static LookupIndex get(File source) throws IOException {
+    String version = source.getCanonicalPath() + '|' + source.length() + '|' + source.lastModified();
+    while (true) {
+      FutureTask<LookupIndex> task = INDEXES.get(version);
+      if (task == null) {
+        FutureTask<LookupIndex> created = new FutureTask<>(() -> {
+          String name = String.format("%016x.idx", hash(version.getBytes(StandardCharsets.UTF_8)));
+          File directory = privateDirectory(new File(System.getProperty("java.io.tmpdir"),
+                                                     "addfield-lookup-" + System.getProperty("user.name")));
+          return open(source, new File(directory, name), SEGMENT_BITS);
+        });
+        task = INDEXES.putIfAbsent(version, created);
+        if (task == null) {
+          task = created;
+          task.run();
+        }
+      }
+      LookupIndex index = await(source, version, task);
+      if (index.acquire(version, task)) {
+        return index;
+      }
+      // the last user released the index while this caller was waiting for it, so it is opened again
+    }
+  }
+
+  private static LookupIndex await(File source, String version, FutureTask<LookupIndex> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(String.format("Interrupted while waiting for the index of '%s'.", source));
+    } catch (ExecutionException e) {
+      INDEXES.remove(version, task);
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(String.format("Failed to build the index of '%s'.", source), e.getCause());
+    }
+  }
+
+  private synchronized boolean acquire(String version, FutureTask<LookupIndex> task) {
+    if (segments == null) {
+      return false;
+    }
+    this.version = version;
+    this.task = task;
+    references++;
+    return true;
+  }
+
+  /**
+   * Releases this index. Once every caller of {@link #get(File)} that got it has released it, or right away for an
+   * index returned by {@link #open(File, File, int)}, it is unmapped and must no longer be used. The index file is
+   * kept, so the next caller of {@link #get(File)} maps it again without building it.
+   */
+  synchronized void release() {
+    if (segments == null || --references > 0) {
+      return;
+    }
+    if (task != null) {
+      INDEXES.remove(version, task);
+    }
+    for (MappedByteBuffer segment : segments) {
+      unmap(segment);
+    }
+    segments = null;
+  }
+
+  // the mapping would otherwise only be released when the buffer is garbage collected
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // not a JDK 8 direct buffer, so it is left to the garbage collector
+    }
+  }
+
+  /**
+   * Returns the given directory, creating it if it does not exist. On file systems with POSIX permissions, the
+   * directory is created so that only the current user can access it, and an existing directory is only used if it
+   * is not a link, is owned by the current user and cannot be accessed by anyone else.
+   *
+   * @throws IOException if the directory cannot be created or is not private
+   */
+  static File privateDirectory(File directory) throws IOException {
+    Path path = directory.toPath();
+    boolean posix = Files.getFileStore(path.getParent()).supportsFileAttributeView(PosixFileAttributeView.class);
+    try {
+      if (posix) {
+        Files.createDirectory(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+      } else {
+        Files.createDirectory(path);
+      }
+    } catch (FileAlreadyExistsException e) {
+      // checked below
+    }
+    if (posix) {
+      PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class,
+                                                            LinkOption.NOFOLLOW_LINKS);
+      // a file created now is owned by the current user, who the user name property does not always identify
+      Path probe = Files.createTempFile(path.getParent(), "addfield-lookup-", ".owner");
+      try {
+        if (!attributes.isDirectory() || !attributes.owner().equals(Files.getOwner(probe)) ||
+          !attributes.permissions().equals(OWNER_ONLY)) {
+          throw new IOException(String.format("Directory '%s' must be a directory that only its owner can access.",
+                                              directory));
+        }
+      } finally {
+        Files.deleteIfExists(probe);
+      }
+    } else if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException(String.format("'%s' is not a directory.", directory));
+    }
+    return directory;
+  }
+
+  /**
+   * Opens the given index file, first building it from the given CSV file if it does not exist.
+   */
+  static LookupIndex open(File source, File indexFile, int segmentBits) throws IOException {
+    if (!indexFile.isFile()) {
+      build(source, indexFile, segmentBits);
+    }
+    return new LookupIndex(indexFile, segmentBits);
+  }
+
+  /**
+   * Returns the number of distinct keys.
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Returns the value of the given key, or null if the key is not in the index.
+   */
+  @Nullable
+  String get(String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    long offset = find(bytes, hash(bytes));
+    if (offset == 0) {
+      return null;
+    }
+    long valueOffset = offset + 4 + bytes.length;
+    return new String(read(valueOffset + 4, getInt(valueOffset)), StandardCharsets.UTF_8);
+  }
+
+  // returns the offset of the entry for the given key, or 0 if there is none
+  private long find(byte[] key, long hash) {
+    long tag = hash >>> OFFSET_BITS;
+    for (long i = hash & tableMask; ; i = (i + 1) & tableMask) {
+      long slot = getLong(HEADER_BYTES + i * 8);
+      if (slot == 0) {
+        return 0;
+      }
+      long offset = slot & OFFSET_MASK;
+      if (slot >>> OFFSET_BITS == tag && keyEquals(offset, key)) {
+        return offset;
+      }
+    }
+  }
+
+  private boolean keyEquals(long offset, byte[] key) {
+    if (getInt(offset) != key.length) {
+      return false;
+    }
+    MappedByteBuffer segment = segments[(int) (offset >>> segmentBits)];
+    int start = (int) (offset & segmentMask) + 4;
+    for (int i = 0; i < key.length; i++) {
+      if (segment.get(start + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // absolute reads only, so that lookups from several threads do not interfere
+  private byte[] read(long offset, int length) {
+    MappedByteBuffer segment = segments[(int) (offset >>> segmentBits)];
+    int start = (int) (offset & segmentMask);
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = segment.get(start + i);
+    }
+    return bytes;
+  }
+
+  private int getInt(long offset) {
+    return segments[(int) (offset >>> segmentBits)].getInt((int) (offset & segmentMask));
+  }
+
+  private long getLong(long offset) {
+    return segments[(int) (offset >>> segmentBits)].getLong((int) (offset & segmentMask));
+  }
+
+  /**
+   * Builds the index of the given CSV file into a temporary file next to the given index file, and then moves it
+   * into place, so that other processes never see a partially written index.
+   */
+  private static void build(File source, File indexFile, int segmentBits) throws IOException {
+    // the first pass sizes the file, so that the second can write it through a mapping
+    long entries = 0;
+    long dataBytes = 0;
+    int maxEntryBytes = 0;
+    try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+      String[] pair = new String[2];
+      int lineNumber = 0;
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        lineNumber++;
+        if (parseLine(line, lineNumber, source, pair)) {
+          int size = entrySize(pair, segmentBits);
+          entries++;
+          dataBytes += size;
+          maxEntryBytes = Math.max(maxEntryBytes, size);
+        }
+      }
+    }
+    if (entries > 1L << 30) {
+      throw new IOException(String.format("File '%s' has more than %d keys.", source, 1L << 30));
+    }
+    int tableBits = 64 - Long.numberOfLeadingZeros(Math.max(2, entries) * 2 - 1);
+    long dataStart = HEADER_BYTES + (8L << tableBits);
+    // entries moved to the next segment leave less than the largest entry unused at the end of each segment
+    long length = dataStart + dataBytes;
+    length += ((length >>> segmentBits) + 1) * maxEntryBytes;
+    if (length > OFFSET_MASK) {
+      throw new IOException(String.format("File '%s' is too large to index.", source));
+    }
+
+    // created so that only the current user can read or write it, and moved into place once it is complete
+    File tempFile = Files.createTempFile(indexFile.getAbsoluteFile().getParentFile().toPath(), indexFile.getName(),
+                                         ".tmp").toFile();
+    try {
+      try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw")) {
+        file.setLength(length);
+      }
+      Builder builder = new Builder(tempFile, length, segmentBits, tableBits, dataStart);
+      try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+        String[] pair = new String[2];
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          lineNumber++;
+          if (parseLine(line, lineNumber, source, pair)) {
+            builder.add(pair[0].getBytes(StandardCharsets.UTF_8), pair[1].getBytes(StandardCharsets.UTF_8));
+          }
+        }
+      }
+      builder.finish();
+      Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                 StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+  }
+
+  private static int entrySize(String[] pair, int segmentBits) throws IOException {
+    long size = 8L + pair[0].getBytes(StandardCharsets.UTF_8).length + pair[1].getBytes(StandardCharsets.UTF_8).length;
+    if (size > 1L << segmentBits) {
+      throw new IOException(String.format("Lookup entry for key '%s' is larger than %d bytes.",
+                                          pair[0], 1L << segmentBits));
+    }
+    return (int) size;
+  }
+
+  // returns the offset at which an entry of the given size can start, which is the next segment if it does not fit
+  // in the rest of the segment of the given offset
+  private static long place(long offset, int size, int segmentBits) {
+    long segmentEnd = ((offset >>> segmentBits) + 1) << segmentBits;
+    return offset + size > segmentEnd ? segmentEnd : offset;
+  }
+
+  /**
+   * Parses a line of the CSV file into the given pair. Returns false if the line is blank.
+   */
+  static boolean parseLine(String line, int lineNumber, File source, String[] pair) throws IOException {
+    if (line.trim().isEmpty()) {
+      return false;
+    }
+    StringBuilder field = new StringBuilder();
+    int fieldIndex = 0;
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',' && fieldIndex == 0) {
+        pair[0] = field.toString();
+        field.setLength(0);
+        fieldIndex = 1;
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IOException(String.format("Quote on line %d of '%s' is not closed.", lineNumber, source));
+    }
+    if (fieldIndex == 0) {
+      throw new IOException(String.format("Line %d of '%s' has no value.", lineNumber, source));
+    }
+    pair[1] = field.toString();
+    return true;
+  }
+
+  static long hash(byte[] bytes) {
+    long hash = 0xcbf29ce484222325L ^ bytes.length;
+    for (byte b : bytes) {
+      hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+    }
+    // the murmur3 finalizer, so that the low bits used for the slot and the high bits used for the tag both depend
+    // on every byte
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  private static MappedByteBuffer[] map(File file, FileChannel.MapMode mode, long length,
+                                        int segmentBits) throws IOException {
+    long segmentSize = 1L << segmentBits;
+    MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((length + segmentSize - 1) >>> segmentBits)];
+    try (RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+         FileChannel channel = raf.getChannel()) {
+      // mappings stay valid after the channel is closed
+      for (int i = 0; i < segments.length; i++) {
+        long start = (long) i << segmentBits;
+        segments[i] = channel.map(mode, start, Math.min(segmentSize, length - start));
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * Writes entries and the table through a writable mapping of the index file.
+   */
+  private static final class Builder {
+    private final LookupIndex index;
+    private final int tableBits;
+    private long dataEnd;
+    private long entries;
+
+    private Builder(File file, long length, int segmentBits, int tableBits, long dataStart) throws IOException {
+      this.index = new LookupIndex(map(file, FileChannel.MapMode.READ_WRITE, length, segmentBits), segmentBits,
+                                   tableBits);
+      this.tableBits = tableBits;
+      this.dataEnd = dataStart;
+    }
+
+    private void add(byte[] key, byte[] value) {
+      long hash = hash(key);
+      long tag = hash >>> OFFSET_BITS;
+      long i = hash & index.tableMask;
+      for (long slot = index.getLong(HEADER_BYTES + i * 8); slot != 0;
+           i = (i + 1) & index.tableMask, slot = index.getLong(HEADER_BYTES + i * 8)) {
+        if (slot >>> OFFSET_BITS == tag && index.keyEquals(slot & OFFSET_MASK, key)) {
+          return;
+        }
+      }
+      int size = 8 + key.length + value.length;
+      long offset = place(dataEnd, size, index.segmentBits);
+      MappedByteBuffer segment = index.segments[(int) (offset >>> index.segmentBits)];
+      int position = (int) (offset & index.segmentMask);
+      segment.putInt(position, key.length);
+      for (int j = 0; j < key.length; j++) {
+        segment.put(position + 4 + j, key[j]);
+      }
+      segment.putInt(position + 4 + key.length, value.length);
+      for (int j = 0; j < value.length; j++) {
+        segment.put(position + 8 + key.length + j, value[j]);
+      }
+      putLong(HEADER_BYTES + i * 8, tag << OFFSET_BITS | offset);
+      dataEnd = offset + size;
+      entries++;
+    }
+
+    private void finish() {
+      index.segments[0].putInt(0, MAGIC);
+      index.segments[0].putInt(4, tableBits);
+      index.segments[0].putLong(8, entries);
+      for (MappedByteBuffer segment : index.segments) {
+        segment.force();
+      }
+    }
+
+    private void putLong(long offset, long value) {
+      index.segments[(int) (offset >>> index.segmentBits)].putLong((int) (offset & index.segmentMask), value);
+    }
+  }
+}
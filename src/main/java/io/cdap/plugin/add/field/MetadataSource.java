@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.StageContext;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Run metadata that {@link MultiFieldAdder} can add to each record. Values are read from the stage context once,
+ * when the transform is initialized, and not for every record.
+ */
+public enum MetadataSource {
+  NAMESPACE("namespace", Schema.of(Schema.Type.STRING)) {
+    @Override
+    Object resolve(StageContext context) {
+      return context.getNamespace();
+    }
+  },
+  PIPELINE("pipeline", Schema.of(Schema.Type.STRING)) {
+    @Override
+    Object resolve(StageContext context) {
+      return context.getPipelineName();
+    }
+  },
+  STAGE("stage", Schema.of(Schema.Type.STRING)) {
+    @Override
+    Object resolve(StageContext context) {
+      return context.getStageName();
+    }
+  },
+  LOGICAL_START_TIME("logicalStartTime", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)) {
+    @Override
+    Object resolve(StageContext context) {
+      return TimeUnit.MILLISECONDS.toMicros(context.getLogicalStartTime());
+    }
+  };
+
+  private final String value;
+  private final Schema schema;
+
+  MetadataSource(String value, Schema schema) {
+    this.value = value;
+    this.schema = schema;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the nullable schema of fields from this source.
+   */
+  Schema getSchema() {
+    return Schema.nullableOf(schema);
+  }
+
+  /**
+   * Returns the value of this source for the run that the given context belongs to.
+   */
+  abstract Object resolve(StageContext context);
+
+  /**
+   * Returns the source with the given configuration value, or null if there is none.
+   */
+  @Nullable
+  public static MetadataSource fromValue(String value) {
+    for (MetadataSource source : values()) {
+      if (source.value.equalsIgnoreCase(value)) {
+        return source;
+      }
+    }
+    return null;
+  }
+}
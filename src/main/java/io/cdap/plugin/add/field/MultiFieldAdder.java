@@ -31,10 +31,7 @@ import io.cdap.cdap.etl.api.TransformContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Collection;
 import javax.ws.rs.Path;
 
 /**
@@ -48,7 +45,15 @@ public class MultiFieldAdder extends Transform<StructuredRecord, StructuredRecor
   private static final Logger LOG = LoggerFactory.getLogger(MultiFieldAdder.class);
   public static final String NAME = "MultiFieldAdder";
   private final MultiFieldAdderConfig config;
-  private Map<String, String> fieldMaps = new TreeMap<>();
+  private final SchemaCache<OutputPlan> outputPlans = new SchemaCache<>(this::createOutputPlan);
+  private TransformMetrics metrics;
+  private FieldPlan fieldPlan;
+  private String planKey;
+  private RuleTable rules;
+  private String ruleKeyField;
+  private ValueGenerator[] generators;
+  private int generatedStart;
+  private Object[] values;
 
   public static class GetSchemaRequest extends MultiFieldAdderConfig {
     private Schema inputSchema;
@@ -63,7 +68,8 @@ public class MultiFieldAdder extends Transform<StructuredRecord, StructuredRecor
     StageConfigurer stageConfigurer = configurer.getStageConfigurer();
     Schema inputSchema = stageConfigurer.getInputSchema();
     FailureCollector failureCollector = stageConfigurer.getFailureCollector();
-    config.validate(failureCollector);
+    config.validate(failureCollector, inputSchema);
+    failureCollector.getOrThrowException();
 
     if (inputSchema != null) {
       stageConfigurer.setOutputSchema(getOutputSchema(inputSchema, config));
@@ -81,26 +87,60 @@ public class MultiFieldAdder extends Transform<StructuredRecord, StructuredRecor
   @Override
   public void initialize(TransformContext context) throws Exception {
     super.initialize(context);
-    fieldMaps = config.getFieldValue();
+    metrics = new TransformMetrics(context.getMetrics(), outputPlans, config.getMetricsSampleInterval(),
+                                   config.getErrorSampleInterval());
+    // run metadata does not change during a run, so it is read here instead of for every record
+    Collection<GeneratedField> generatedFields = config.getGeneratedFields().values();
+    fieldPlan = FieldPlan.compile(config.getAddedFields().values(), config.getMetadataFields(), generatedFields,
+                                  config.getRuleField(), context);
+    values = fieldPlan.getValues();
+    // plans for each input schema are shared with the other tasks of this stage in the JVM
+    planKey = fieldPlan.getPlanKey(config.getCollisionPolicy());
+    generators = new ValueGenerator[generatedFields.size()];
+    int i = 0;
+    for (GeneratedField generatedField : generatedFields) {
+      generators[i++] = generatedField.createGenerator(context);
+    }
+    generatedStart = fieldPlan.getGeneratedStart();
+    if (config.getRuleField() != null) {
+      rules = RuleTable.compile(config.getRules(), config.getRuleDefault());
+      ruleKeyField = config.getRuleKeyField();
+    }
+    if (generators.length > 0 || rules != null) {
+      // generated and rule values are set for every record in this copy of the values
+      values = values.clone();
+    }
   }
 
   @Override
   public void transform(StructuredRecord record, Emitter<StructuredRecord> emitter) throws Exception {
-    Schema outputSchema = getOutputSchema(record.getSchema(), config);
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-    for (Schema.Field inputField : record.getSchema().getFields()) {
-      String inputFieldName = inputField.getName();
-      if (fieldMaps.containsKey(inputFieldName)) {
-        emitter.emitError(new InvalidEntry<>(400, String.format("Field '%s' already exists in input", inputFieldName),
-                                             record));
-        return;
+    metrics.recordStarted();
+    OutputPlan plan = outputPlans.get(record.getSchema());
+    if (plan.getCollisionMessage() != null) {
+      if (metrics.collisionFailed(plan.getCollisionField())) {
+        emitter.emitError(new InvalidEntry<>(400, plan.getCollisionMessage(), record));
+        metrics.collisionEmitted();
+      }
+      return;
+    }
+    for (int i = 0; i < generators.length; i++) {
+      if (plan.isAdded(generatedStart + i)) {
+        values[generatedStart + i] = generators[i].next();
       }
-      builder.set(inputFieldName, record.get(inputFieldName));
     }
-    for(Map.Entry<String, String> fieldValue : fieldMaps.entrySet()) {
-      builder.set(fieldValue.getKey(), fieldValue.getValue());
+    if (rules != null) {
+      values[values.length - 1] = rules.get(record.get(ruleKeyField));
     }
-    emitter.emit(builder.build());
+    emitter.emit(plan.build(record, values));
+    metrics.recordEmitted();
+  }
+
+  @Override
+  public void destroy() {
+    if (metrics != null) {
+      metrics.flush();
+    }
+    super.destroy();
   }
 
   @Path("outputSchema")
@@ -112,12 +152,14 @@ public class MultiFieldAdder extends Transform<StructuredRecord, StructuredRecor
     if (schema == null) {
       throw new IllegalArgumentException("No node is connected. Please connect a node to generate the schema.");
     }
-    List<Schema.Field> fields = new ArrayList<>(schema.getFields().size() + 1);
-    fields.addAll(schema.getFields());
-    Map<String, String> values = config.getFieldValue();
-    for (Map.Entry<String, String> value : values.entrySet()) {
-      fields.add(Schema.Field.of(value.getKey(), Schema.nullableOf(Schema.of(Schema.Type.STRING))));
-    }
-    return Schema.recordOf(schema.getRecordName() + ".added", fields);
+    return FieldPlan.compile(config.getAddedFields().values(), config.getMetadataFields(),
+                             config.getGeneratedFields().values(), config.getRuleField(), null)
+      .createOutputPlan(schema, config.getCollisionPolicy())
+      .getOutputSchema();
+  }
+
+  private OutputPlan createOutputPlan(Schema inputSchema) {
+    return SharedPlanCache.INSTANCE.get(planKey, inputSchema,
+                                        schema -> fieldPlan.createOutputPlan(schema, config.getCollisionPolicy()));
   }
 }
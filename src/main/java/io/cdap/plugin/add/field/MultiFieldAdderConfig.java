@@ -3,20 +3,106 @@ package io.cdap.plugin.add.field;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.etl.api.FailureCollector;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 public class MultiFieldAdderConfig extends PluginConfig {
   public static final String FIELD_VALUE = "fieldValue";
+  public static final String METADATA_FIELDS = "metadataFields";
+  public static final String GENERATED_FIELDS = "generatedFields";
+  public static final String RULE_FIELD = "ruleField";
+  public static final String RULE_KEY_FIELD = "ruleKeyField";
+  public static final String RULES = "rules";
+  public static final String RULE_DEFAULT = "ruleDefault";
+  public static final String COLLISION_POLICY = "collisionPolicy";
+  public static final String METRICS_SAMPLE_INTERVAL = "metricsSampleInterval";
+  public static final String ERROR_SAMPLE_INTERVAL = "errorSampleInterval";
 
+  @Nullable
   @Name(FIELD_VALUE)
   @Macro
-  @Description("Specify a field value pair that needs to added to output.")
+  @Description("Specify a field value pair that needs to added to output. A pair can also specify the field type " +
+    "as 'name:value:type', where the type is one of boolean, int, long, float, double, string, date or timestamp. " +
+    "The type defaults to string. Values may contain ':', and text after the last ':' that is not one of these " +
+    "types is part of the value, so 't:12:30' adds the string '12:30'. A backslash makes the next character " +
+    "literal, and ',' and ':' are also literal inside double quotes. A name can be a path of field names " +
+    "separated by '.', such as 'header.meta.source', to add the field to a nested record.")
   private String fieldValue;
 
+  @Nullable
+  @Name(METADATA_FIELDS)
+  @Description("Comma separated list of run metadata fields to add, each as 'name:source', where the source is one " +
+    "of namespace, pipeline, stage or logicalStartTime. Values are read once when the stage starts, and are added " +
+    "in the same pass as the fields in 'fieldValue'. Logical start times are timestamps, and the others strings.")
+  private String metadataFields;
+
+  @Nullable
+  @Name(GENERATED_FIELDS)
+  @Description("Comma separated list of fields whose values are generated for every record, each as " +
+    "'name:generator' or 'name:generator:argument'. Built-in generators are 'constant', whose argument is the value, " +
+    "'uuid', whose argument is one of secure, fast or time-ordered, and 'sequence', an increasing long that is " +
+    "unique across the tasks of the stage on Spark, but only within a task on MapReduce. More generators can be " +
+    "added with java.util.ServiceLoader. Generators are created once per task.")
+  private String generatedFields;
+
+  @Nullable
+  @Name(RULE_FIELD)
+  @Description("The name of a string field to add whose value is chosen by 'rules' from the value of the " +
+    "'ruleKeyField' input field.")
+  private String ruleField;
+
+  @Nullable
+  @Name(RULE_KEY_FIELD)
+  @Description("The input field whose value is matched against the rules. Must be a string, int or long.")
+  private String ruleKeyField;
+
+  @Nullable
+  @Name(RULES)
+  @Macro
+  @Description("Comma separated list of rules, each as 'match:value'. A match is an exact key such as 'EU', a " +
+    "prefix of string keys followed by '*' such as 'eu-*', or a range of int and long keys such as '10..20', which " +
+    "includes 10 but not 20. Either bound of a range can be left out. An exact key wins over a prefix or range, " +
+    "and the longest matching prefix wins over shorter ones. Ranges must not overlap. Rules are compiled into " +
+    "lookup tables when the stage starts, so the cost per record does not grow with the number of rules.")
+  private String rules;
+
+  @Nullable
+  @Name(RULE_DEFAULT)
+  @Macro
+  @Description("The value of the rule field for keys that match no rule, including null keys. If this is empty, " +
+    "the field is null for such keys.")
+  private String ruleDefault;
+
+  @Nullable
+  @Name(COLLISION_POLICY)
+  @Description("What to do when an input record already contains a field with the name of an added field. " +
+    "'error' sends the record to the error dataset, 'overwrite' replaces the input field, 'skip' keeps the input " +
+    "field and does not add the field, and 'rename' adds the field with a numeric suffix. The decision is made " +
+    "once for every distinct input schema. Defaults to 'error'.")
+  private String collisionPolicy;
+
+  @Nullable
+  @Name(METRICS_SAMPLE_INTERVAL)
+  @Description("Time one out of every this many records and publish the time per record as a histogram of " +
+    "stage metrics. Timing is disabled if this is empty or 0.")
+  private Integer metricsSampleInterval;
+
+  @Nullable
+  @Name(ERROR_SAMPLE_INTERVAL)
+  @Description("Send one out of every this many records that fail with the same error to the error dataset, and " +
+    "only count the others in stage metrics. Every failing record is sent if this is empty or 1.")
+  private Integer errorSampleInterval;
+
   public MultiFieldAdderConfig() {
   }
 
@@ -26,6 +112,15 @@ public class MultiFieldAdderConfig extends PluginConfig {
 
   private MultiFieldAdderConfig(Builder builder) {
     fieldValue = builder.fieldValue;
+    metadataFields = builder.metadataFields;
+    generatedFields = builder.generatedFields;
+    ruleField = builder.ruleField;
+    ruleKeyField = builder.ruleKeyField;
+    rules = builder.rules;
+    ruleDefault = builder.ruleDefault;
+    collisionPolicy = builder.collisionPolicy;
+    metricsSampleInterval = builder.metricsSampleInterval;
+    errorSampleInterval = builder.errorSampleInterval;
   }
 
   public static Builder builder() {
@@ -34,49 +129,365 @@ public class MultiFieldAdderConfig extends PluginConfig {
 
   public static Builder builder(MultiFieldAdderConfig copy) {
     return builder()
-      .setFieldValue(copy.fieldValue);
+      .setFieldValue(copy.fieldValue)
+      .setMetadataFields(copy.metadataFields)
+      .setGeneratedFields(copy.generatedFields)
+      .setRuleField(copy.ruleField)
+      .setRuleKeyField(copy.ruleKeyField)
+      .setRules(copy.rules)
+      .setRuleDefault(copy.ruleDefault)
+      .setCollisionPolicy(copy.collisionPolicy)
+      .setMetricsSampleInterval(copy.metricsSampleInterval)
+      .setErrorSampleInterval(copy.errorSampleInterval);
   }
 
   Map<String, String> getFieldValue() throws IllegalArgumentException {
     Map<String, String> values = new TreeMap<>();
-    if (containsMacro(FIELD_VALUE)) {
-      fieldValue = getMacroFieldValue();
-    }
-    if (fieldValue == null || fieldValue.trim().isEmpty()) {
-      return values;
+    for (AddedField field : getAddedFields().values()) {
+      values.put(field.getName(), field.getValue());
     }
+    return values;
+  }
 
-    String[] fvPairs = fieldValue.split(",");
-    for (String fvPair : fvPairs) {
-      String[] fieldAndValue = fvPair.split(":");
-      if (fieldAndValue.length != 2 || fvPair.startsWith("$")) {
+  /**
+   * Returns the fields to add, keyed and ordered by name. Each field is specified as 'name:value' or
+   * 'name:value:type', where the type defaults to string. Text after the last ':' that is not a known type is part of
+   * the value. Fields whose name or type is a macro are left out, and values that contain a macro are null.
+   *
+   * @throws IllegalArgumentException if the property cannot be parsed
+   */
+  Map<String, AddedField> getAddedFields() {
+    Map<String, AddedField> fields = new TreeMap<>();
+    String value = containsMacro(FIELD_VALUE) ? getMacroFieldValue() : fieldValue;
+    for (FieldValueParser.Pair pair : FieldValueParser.parseFieldValues(value)) {
+      if (pair.getValue() == null || pair.isNameMacro() || pair.isTypeMacro()) {
         continue;
       }
-      String fieldName = fieldAndValue[0];
-      String fieldValue = fieldAndValue[1].contains("$") ? null : fieldAndValue[1];
-      values.put(fieldName, fieldValue);
+      // the parser only takes known types
+      FieldType fieldType = pair.getType() == null ? FieldType.STRING : FieldType.fromValue(pair.getType());
+      String fieldValue = pair.isValueMacro() ? null : pair.getValue();
+      fields.put(pair.getName(), new AddedField(pair.getName(), fieldValue, fieldType));
     }
-    return values;
+    return fields;
+  }
+
+  /**
+   * Returns the run metadata fields to add, keyed by name in the order they are configured. Each field is specified
+   * as 'name:source'.
+   *
+   * @throws IllegalArgumentException if the property cannot be parsed or a source is not supported
+   */
+  Map<String, MetadataSource> getMetadataFields() {
+    Map<String, MetadataSource> fields = new LinkedHashMap<>();
+    for (FieldValueParser.Pair pair : FieldValueParser.parse(metadataFields)) {
+      MetadataSource source = pair.getValue() == null || pair.getType() != null ?
+        null : MetadataSource.fromValue(pair.getValue());
+      if (source == null) {
+        throw new IllegalArgumentException(String.format("Metadata field '%s' at character %d has unsupported " +
+                                                           "source '%s'.", pair.getName(), pair.getPosition(),
+                                                         pair.getValue()));
+      }
+      fields.put(pair.getName(), source);
+    }
+    return fields;
+  }
+
+  /**
+   * Returns the generated fields to add, keyed by name in the order they are configured. Each field is specified as
+   * 'name:generator' or 'name:generator:argument'.
+   *
+   * @throws IllegalArgumentException if the property cannot be parsed, a generator is not known, or a name is
+   *   specified more than once
+   */
+  Map<String, GeneratedField> getGeneratedFields() {
+    Map<String, GeneratedField> fields = new LinkedHashMap<>();
+    for (FieldValueParser.Pair pair : FieldValueParser.parse(generatedFields)) {
+      ValueGeneratorFactory factory = pair.getValue() == null ? null : ValueGenerators.get(pair.getValue());
+      if (factory == null) {
+        throw new IllegalArgumentException(String.format("Generated field '%s' at character %d has unknown " +
+                                                           "generator '%s'.", pair.getName(), pair.getPosition(),
+                                                         pair.getValue()));
+      }
+      if (fields.put(pair.getName(), new GeneratedField(pair.getName(), factory, pair.getType())) != null) {
+        throw new IllegalArgumentException(String.format("Generated field '%s' at character %d is specified " +
+                                                           "multiple times.", pair.getName(), pair.getPosition()));
+      }
+    }
+    return fields;
+  }
+
+  @Nullable
+  public String getRuleField() {
+    return ruleField == null || ruleField.isEmpty() ? null : ruleField;
+  }
+
+  @Nullable
+  public String getRuleKeyField() {
+    return ruleKeyField == null || ruleKeyField.isEmpty() ? null : ruleKeyField;
+  }
+
+  @Nullable
+  public String getRules() {
+    return rules;
+  }
+
+  @Nullable
+  public String getRuleDefault() {
+    return ruleDefault == null || ruleDefault.isEmpty() ? null : ruleDefault;
+  }
+
+  /**
+   * Returns the configured collision policy, or null if the configured value is not a known policy.
+   */
+  @Nullable
+  public CollisionPolicy getCollisionPolicy() {
+    return collisionPolicy == null || collisionPolicy.isEmpty() ?
+      CollisionPolicy.ERROR : CollisionPolicy.fromValue(collisionPolicy);
+  }
+
+  public int getMetricsSampleInterval() {
+    return metricsSampleInterval == null ? 0 : metricsSampleInterval;
+  }
+
+  public int getErrorSampleInterval() {
+    return errorSampleInterval == null ? 1 : errorSampleInterval;
   }
 
   public void validate(FailureCollector failureCollector) {
-    if (!containsMacro(FIELD_VALUE)){
-      Map<String, String> values = new TreeMap<>();
-      String[] fvPairs = fieldValue.split(",");
-      for (String fvPair : fvPairs) {
-        String[] fieldAndValue = fvPair.split(":");
-        if (fieldAndValue.length != 2) {
+    validate(failureCollector, null);
+  }
+
+  public void validate(FailureCollector failureCollector, @Nullable Schema inputSchema) {
+    Set<String> metadataNames = Collections.emptySet();
+    try {
+      metadataNames = getMetadataFields().keySet();
+    } catch (IllegalArgumentException e) {
+      failureCollector.addFailure(e.getMessage(), "Supported sources are namespace, pipeline, stage and " +
+        "logicalStartTime.")
+        .withConfigProperty(METADATA_FIELDS);
+    }
+
+    if (!containsMacro(FIELD_VALUE)) {
+      List<FieldValueParser.Pair> pairs;
+      try {
+        pairs = FieldValueParser.parseFieldValues(fieldValue);
+      } catch (IllegalArgumentException e) {
+        failureCollector.addFailure(e.getMessage(), "Escape '\\', '\"', ',' and ':' with a backslash.")
+          .withConfigProperty(FIELD_VALUE);
+        pairs = Collections.emptyList();
+      }
+      if ((fieldValue == null || fieldValue.isEmpty()) && (metadataFields == null || metadataFields.isEmpty()) &&
+        (generatedFields == null || generatedFields.isEmpty()) && getRuleField() == null) {
+        failureCollector.addFailure("Must specify fields to add, metadata fields, generated fields or a rule field.",
+                                    null)
+          .withConfigProperty(FIELD_VALUE)
+          .withConfigProperty(METADATA_FIELDS);
+      }
+      Set<String> names = new HashSet<>();
+      for (FieldValueParser.Pair pair : pairs) {
+        if (pair.getValue() == null) {
           continue;
         }
-        String fieldName = fieldAndValue[0];
-        String fieldValue = fieldAndValue[1];
-        if (values.containsKey(fieldName)) {
-          failureCollector.addFailure(String.format("Field '%s' is specified multiple times.", fieldName),
+        String fieldName = pair.getName();
+        if (!names.add(fieldName)) {
+          failureCollector.addFailure(String.format("Field '%s' at character %d is specified multiple times.",
+                                                    fieldName, pair.getPosition()),
                                       "Each field must be specified only once.")
             .withConfigProperty(FIELD_VALUE);
           break;
         }
-        values.put(fieldName, fieldValue);
+        if (fieldName.equals(getRuleField())) {
+          failureCollector.addFailure(String.format("Field '%s' at character %d is also the rule field.",
+                                                    fieldName, pair.getPosition()),
+                                      "Each field must be specified only once.")
+            .withConfigProperty(FIELD_VALUE)
+            .withConfigProperty(RULE_FIELD);
+        }
+        if (metadataNames.contains(fieldName)) {
+          failureCollector.addFailure(String.format("Field '%s' at character %d is also a metadata field.",
+                                                    fieldName, pair.getPosition()),
+                                      "Each field must be specified only once.")
+            .withConfigProperty(FIELD_VALUE)
+            .withConfigProperty(METADATA_FIELDS);
+        }
+        if (pair.getType() != null) {
+          try {
+            new AddedField(fieldName, pair.getValue(), FieldType.fromValue(pair.getType())).parseValue();
+          } catch (IllegalArgumentException e) {
+            failureCollector.addFailure(String.format("%s The value starts at character %d.",
+                                                      e.getMessage(), pair.getValuePosition()), null)
+              .withConfigProperty(FIELD_VALUE);
+          }
+        }
+      }
+    }
+
+    validateGeneratedFields(failureCollector, metadataNames);
+    validateRules(failureCollector, metadataNames, inputSchema);
+    if (inputSchema != null) {
+      validatePaths(failureCollector, metadataNames, inputSchema);
+    }
+
+    if (getCollisionPolicy() == null) {
+      failureCollector.addFailure(String.format("Invalid collision policy '%s'.", collisionPolicy),
+                                  "Use one of 'error', 'overwrite', 'skip' or 'rename'.")
+        .withConfigProperty(COLLISION_POLICY);
+    }
+
+    if (getMetricsSampleInterval() < 0) {
+      failureCollector.addFailure("Metrics sample interval must not be negative.",
+                                  "Provide 0 to disable timing, or a positive interval.")
+        .withConfigProperty(METRICS_SAMPLE_INTERVAL);
+    }
+
+    if (getErrorSampleInterval() < 1) {
+      failureCollector.addFailure("Error sample interval must be positive.",
+                                  "Provide 1 to send every failing record to the error dataset, or a larger interval.")
+        .withConfigProperty(ERROR_SAMPLE_INTERVAL);
+    }
+  }
+
+  private void validateGeneratedFields(FailureCollector failureCollector, Set<String> metadataNames) {
+    Map<String, GeneratedField> fields;
+    try {
+      fields = getGeneratedFields();
+    } catch (IllegalArgumentException e) {
+      String generators = String.join(", ", ValueGenerators.getNames());
+      failureCollector.addFailure(e.getMessage(), String.format("Specify each field once, with one of the " +
+                                                                  "generators %s.", generators))
+        .withConfigProperty(GENERATED_FIELDS);
+      return;
+    }
+    Set<String> addedNames = Collections.emptySet();
+    try {
+      addedNames = getAddedFields().keySet();
+    } catch (IllegalArgumentException e) {
+      // already reported for the field value property
+    }
+    for (GeneratedField field : fields.values()) {
+      if (addedNames.contains(field.getName())) {
+        failureCollector.addFailure(String.format("Generated field '%s' is also a field to add.", field.getName()),
+                                    "Each field must be specified only once.")
+          .withConfigProperty(GENERATED_FIELDS)
+          .withConfigProperty(FIELD_VALUE);
+      }
+      if (metadataNames.contains(field.getName())) {
+        failureCollector.addFailure(String.format("Generated field '%s' is also a metadata field.", field.getName()),
+                                    "Each field must be specified only once.")
+          .withConfigProperty(GENERATED_FIELDS)
+          .withConfigProperty(METADATA_FIELDS);
+      }
+      if (field.getName().equals(getRuleField())) {
+        failureCollector.addFailure(String.format("Generated field '%s' is also the rule field.", field.getName()),
+                                    "Each field must be specified only once.")
+          .withConfigProperty(GENERATED_FIELDS)
+          .withConfigProperty(RULE_FIELD);
+      }
+      try {
+        field.getSchema();
+      } catch (IllegalArgumentException e) {
+        failureCollector.addFailure(e.getMessage(), null).withConfigProperty(GENERATED_FIELDS);
+      }
+    }
+  }
+
+  /**
+   * Checks that the record fields on the paths of the added fields exist in the input, and that no field is added
+   * inside another added field. Each failure names the property of the field it is about.
+   */
+  private void validatePaths(FailureCollector failureCollector, Set<String> metadataNames, Schema inputSchema) {
+    // the property of every added field, leaving out those whose property is not valid, which is reported already
+    Map<String, String> properties = new LinkedHashMap<>();
+    try {
+      for (String name : getAddedFields().keySet()) {
+        properties.put(name, FIELD_VALUE);
+      }
+    } catch (IllegalArgumentException e) {
+      // already reported for the field value property
+    }
+    for (String name : metadataNames) {
+      properties.putIfAbsent(name, METADATA_FIELDS);
+    }
+    try {
+      for (String name : getGeneratedFields().keySet()) {
+        properties.putIfAbsent(name, GENERATED_FIELDS);
+      }
+    } catch (IllegalArgumentException e) {
+      // already reported for the generated fields property
+    }
+    if (getRuleField() != null) {
+      properties.putIfAbsent(getRuleField(), RULE_FIELD);
+    }
+
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      String name = entry.getKey();
+      Schema schema = inputSchema;
+      for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', dot + 1)) {
+        String parent = name.substring(0, dot);
+        String parentProperty = properties.get(parent);
+        if (parentProperty != null) {
+          failureCollector.addFailure(String.format("Field '%s' cannot be added when fields are also added inside " +
+                                                      "it, such as '%s'.", parent, name),
+                                      "Add the fields inside it to a record field of the input instead.")
+            .withConfigProperty(parentProperty)
+            .withConfigProperty(entry.getValue());
+          break;
+        }
+        Schema.Field field = schema == null ? null : schema.getField(name.substring(parent.lastIndexOf('.') + 1, dot));
+        Schema fieldSchema = field == null ? null : field.getSchema();
+        schema = fieldSchema != null && fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+        if (schema == null || schema.getType() != Schema.Type.RECORD) {
+          failureCollector.addFailure(String.format("Field '%s' does not exist in input or is not a record.", parent),
+                                      "Provide paths of record fields that exist in the input.")
+            .withConfigProperty(entry.getValue());
+          break;
+        }
+      }
+    }
+  }
+
+  private void validateRules(FailureCollector failureCollector, Set<String> metadataNames,
+                             @Nullable Schema inputSchema) {
+    boolean hasRules = (rules != null && !rules.isEmpty()) || containsMacro(RULES);
+    if (getRuleField() == null && getRuleKeyField() == null && !hasRules) {
+      return;
+    }
+    if (getRuleField() == null || getRuleKeyField() == null || !hasRules) {
+      failureCollector.addFailure("A rule field, a rule key field and rules must be specified together.", null)
+        .withConfigProperty(RULE_FIELD)
+        .withConfigProperty(RULE_KEY_FIELD)
+        .withConfigProperty(RULES);
+      return;
+    }
+    if (metadataNames.contains(getRuleField())) {
+      failureCollector.addFailure(String.format("Rule field '%s' is also a metadata field.", getRuleField()),
+                                  "Each field must be specified only once.")
+        .withConfigProperty(RULE_FIELD)
+        .withConfigProperty(METADATA_FIELDS);
+    }
+    if (!containsMacro(RULES) && !containsMacro(RULE_DEFAULT)) {
+      try {
+        RuleTable.compile(rules, getRuleDefault());
+      } catch (IllegalArgumentException e) {
+        failureCollector.addFailure(e.getMessage(), "Specify each match once, as a key, a prefix followed by '*', " +
+          "or a range of whole numbers that does not overlap other ranges.")
+          .withConfigProperty(RULES);
+      }
+    }
+
+    if (inputSchema != null) {
+      Schema.Field field = inputSchema.getField(getRuleKeyField());
+      if (field == null) {
+        failureCollector.addFailure(String.format("Rule key field '%s' does not exist in the input schema.",
+                                                  getRuleKeyField()),
+                                    "Provide a field that is present in the input schema.")
+          .withConfigProperty(RULE_KEY_FIELD);
+      } else if (!RuleTable.isKeySupported(field.getSchema())) {
+        failureCollector.addFailure(String.format("Rule key field '%s' is of unsupported type '%s'.",
+                                                  getRuleKeyField(), field.getSchema().getDisplayName()),
+                                    "Rule key fields must be of type string, int or long.")
+          .withConfigProperty(RULE_KEY_FIELD)
+          .withInputSchemaField(getRuleKeyField());
       }
     }
   }
@@ -93,6 +504,15 @@ public class MultiFieldAdderConfig extends PluginConfig {
    */
   public static final class Builder {
     private String fieldValue;
+    private String metadataFields;
+    private String generatedFields;
+    private String ruleField;
+    private String ruleKeyField;
+    private String rules;
+    private String ruleDefault;
+    private String collisionPolicy;
+    private Integer metricsSampleInterval;
+    private Integer errorSampleInterval;
 
     private Builder() {
     }
@@ -106,6 +526,51 @@ public class MultiFieldAdderConfig extends PluginConfig {
       return this;
     }
 
+    public Builder setMetadataFields(String metadataFields) {
+      this.metadataFields = metadataFields;
+      return this;
+    }
+
+    public Builder setGeneratedFields(String generatedFields) {
+      this.generatedFields = generatedFields;
+      return this;
+    }
+
+    public Builder setRuleField(String ruleField) {
+      this.ruleField = ruleField;
+      return this;
+    }
+
+    public Builder setRuleKeyField(String ruleKeyField) {
+      this.ruleKeyField = ruleKeyField;
+      return this;
+    }
+
+    public Builder setRules(String rules) {
+      this.rules = rules;
+      return this;
+    }
+
+    public Builder setRuleDefault(String ruleDefault) {
+      this.ruleDefault = ruleDefault;
+      return this;
+    }
+
+    public Builder setCollisionPolicy(String collisionPolicy) {
+      this.collisionPolicy = collisionPolicy;
+      return this;
+    }
+
+    public Builder setMetricsSampleInterval(Integer metricsSampleInterval) {
+      this.metricsSampleInterval = metricsSampleInterval;
+      return this;
+    }
+
+    public Builder setErrorSampleInterval(Integer errorSampleInterval) {
+      this.errorSampleInterval = errorSampleInterval;
+      return this;
+    }
+
     public MultiFieldAdderConfig build() {
       return new MultiFieldAdderConfig(this);
     }
@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming version of the x64 128 bit variant of MurmurHash3 with a seed of 0. Values are fed in little endian
+ * byte order, so hashing a sequence of puts gives the same result as hashing the concatenation of their bytes.
+ *
+ * Input is buffered in two longs rather than a byte array, so hashing does not allocate. Instances are not thread
+ * safe and are meant to be reused through {@link #reset()}.
+ */
+final class Murmur3Hasher {
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private long h1;
+  private long h2;
+  // bytes of the current block that have not been mixed in yet
+  private long k1;
+  private long k2;
+  private int position;
+  private long length;
+
+  /**
+   * Starts a new hash.
+   */
+  void reset() {
+    h1 = 0;
+    h2 = 0;
+    k1 = 0;
+    k2 = 0;
+    position = 0;
+    length = 0;
+  }
+
+  void putByte(int value) {
+    put(value & 0xFFL, 1);
+  }
+
+  void putChar(char value) {
+    put(value, 2);
+  }
+
+  void putInt(int value) {
+    put(value & 0xFFFFFFFFL, 4);
+  }
+
+  void putLong(long value) {
+    put(value, 8);
+  }
+
+  void putBytes(byte[] bytes) {
+    int i = 0;
+    for (; i + 8 <= bytes.length; i += 8) {
+      long value = 0;
+      for (int j = 7; j >= 0; j--) {
+        value = (value << 8) | (bytes[i + j] & 0xFFL);
+      }
+      put(value, 8);
+    }
+    for (; i < bytes.length; i++) {
+      putByte(bytes[i]);
+    }
+  }
+
+  /**
+   * Hashes the remaining bytes of the given buffer without changing its position.
+   */
+  void putBytes(ByteBuffer buffer) {
+    for (int i = buffer.position(); i < buffer.limit(); i++) {
+      putByte(buffer.get(i));
+    }
+  }
+
+  /**
+   * Hashes the characters of the given string as UTF-16 code units, packing four of them into each long.
+   */
+  void putChars(String string) {
+    int count = string.length();
+    int i = 0;
+    for (; i + 4 <= count; i += 4) {
+      put(string.charAt(i) | (long) string.charAt(i + 1) << 16 | (long) string.charAt(i + 2) << 32 |
+            (long) string.charAt(i + 3) << 48, 8);
+    }
+    for (; i < count; i++) {
+      putChar(string.charAt(i));
+    }
+  }
+
+  /**
+   * Finishes the hash. The result is available through {@link #getH1()} and {@link #getH2()} until the next reset.
+   */
+  void finish() {
+    if (position > 0) {
+      h1 ^= mixK1(k1);
+      h2 ^= mixK2(k2);
+    }
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    h2 += h1;
+  }
+
+  /**
+   * Returns the first 64 bits of the finished hash, which make up its first 8 bytes in little endian order.
+   */
+  long getH1() {
+    return h1;
+  }
+
+  /**
+   * Returns the last 64 bits of the finished hash, which make up its last 8 bytes in little endian order.
+   */
+  long getH2() {
+    return h2;
+  }
+
+  // adds the given number of low order bytes of the value, which must not have any higher bits set
+  private void put(long value, int bytes) {
+    length += bytes;
+    int end = position + bytes;
+    if (position < 8) {
+      k1 |= value << (position << 3);
+      if (end > 8) {
+        k2 |= value >>> ((8 - position) << 3);
+      }
+      position = end;
+      return;
+    }
+    k2 |= value << ((position - 8) << 3);
+    if (end < 16) {
+      position = end;
+      return;
+    }
+    int overflow = end - 16;
+    mixBlock();
+    if (overflow > 0) {
+      k1 = value >>> ((bytes - overflow) << 3);
+      position = overflow;
+    }
+  }
+
+  private void mixBlock() {
+    h1 ^= mixK1(k1);
+    h1 = Long.rotateLeft(h1, 27);
+    h1 += h2;
+    h1 = h1 * 5 + 0x52dce729;
+
+    h2 ^= mixK2(k2);
+    h2 = Long.rotateLeft(h2, 31);
+    h2 += h1;
+    h2 = h2 * 5 + 0x38495ab5;
+
+    k1 = 0;
+    k2 = 0;
+    position = 0;
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    k1 *= C2;
+    return k1;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    k2 *= C1;
+    return k2;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+}
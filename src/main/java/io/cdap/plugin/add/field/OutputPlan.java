@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Everything a transform needs to turn records of one input schema into output records: the output schema, the
+ * error to emit if the input already contains an added field, a copy plan for the input fields, and where each added
+ * field is set.
+ *
+ * Added fields are named by a path of field names separated by '.', such as 'header.meta.source', which adds
+ * 'source' to the 'meta' record inside the 'header' record. Each record on such a path gets a plan of its own, so
+ * only the records on the path are rebuilt, and every other input field, including records, is copied by reference.
+ *
+ * The copy plan holds the input field names in schema order, taken from the schema the plan was created for, so
+ * copying a record is a loop over an array of strings whose hash codes are already computed. Plans are matched to
+ * records by a {@link SchemaCache}, which checks the schema of a record by identity first and then by structural
+ * equality, so a plan can also build records whose schema is an equal but separate instance. For records of the
+ * same instance, the field names are the same strings as the ones in the record schema and compare equal by
+ * identity; for the others, they compare equal through {@link String#equals(Object)}.
+ */
+final class OutputPlan {
+  private final Schema outputSchema;
+  private final String collisionMessage;
+  private final String collisionField;
+  private final String[] copiedFieldNames;
+  private final String[] nestedFieldNames;
+  private final OutputPlan[] nestedPlans;
+  private final String[] addedFieldNames;
+  private final int[] addedIndexes;
+  private final boolean[] skipped;
+
+  private OutputPlan(Schema outputSchema, @Nullable String collisionMessage, @Nullable String collisionField,
+                     List<String> copiedFieldNames, Map<String, OutputPlan> nestedPlans,
+                     Map<String, Integer> addedIndexes, boolean[] skipped) {
+    this.outputSchema = outputSchema;
+    this.collisionMessage = collisionMessage;
+    this.collisionField = collisionField;
+    this.copiedFieldNames = copiedFieldNames.toArray(new String[0]);
+    this.nestedFieldNames = nestedPlans.keySet().toArray(new String[0]);
+    this.nestedPlans = nestedPlans.values().toArray(new OutputPlan[0]);
+    this.addedFieldNames = addedIndexes.keySet().toArray(new String[0]);
+    this.addedIndexes = new int[addedFieldNames.length];
+    for (int i = 0; i < addedFieldNames.length; i++) {
+      this.addedIndexes[i] = addedIndexes.get(addedFieldNames[i]);
+    }
+    this.skipped = skipped;
+  }
+
+  /**
+   * Plans the output for records of the given input schema, which are the input fields followed by the added
+   * fields. Added fields that already exist in the input are resolved according to the given policy.
+   *
+   * @param inputSchema the input schema
+   * @param addedFields the fields to add, in order, named by their paths
+   * @param addedNames the paths of the added fields
+   * @param policy what to do with added fields that already exist in the input
+   * @param collisionFormat format of the error message for the {@link CollisionPolicy#ERROR} policy, which is
+   *   given the path of the first input field that already exists
+   * @throws IllegalArgumentException if the path of an added field goes through a field that does not exist in the
+   *   input or is not a record
+   */
+  static OutputPlan create(Schema inputSchema, List<Schema.Field> addedFields, Set<String> addedNames,
+                           CollisionPolicy policy, String collisionFormat) {
+    int[] indexes = new int[addedFields.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = i;
+    }
+    return create(inputSchema, addedFields, indexes, addedNames, policy, collisionFormat, "",
+                  new boolean[addedFields.size()]);
+  }
+
+  private static OutputPlan create(Schema inputSchema, List<Schema.Field> addedFields, int[] indexes,
+                                   Set<String> addedNames, CollisionPolicy policy, String collisionFormat,
+                                   String prefix, boolean[] skipped) {
+    // fields added to this record, and fields added to nested records grouped by the field holding the record
+    List<Schema.Field> directFields = new ArrayList<>();
+    List<Integer> directIndexes = new ArrayList<>();
+    Map<String, List<Schema.Field>> nestedFields = new LinkedHashMap<>();
+    Map<String, List<Integer>> nestedIndexes = new HashMap<>();
+    for (int i = 0; i < addedFields.size(); i++) {
+      Schema.Field field = addedFields.get(i);
+      int dot = field.getName().indexOf('.');
+      if (dot < 0) {
+        directFields.add(field);
+        directIndexes.add(indexes[i]);
+      } else {
+        String parent = field.getName().substring(0, dot);
+        nestedFields.computeIfAbsent(parent, name -> new ArrayList<>())
+          .add(Schema.Field.of(field.getName().substring(dot + 1), field.getSchema()));
+        nestedIndexes.computeIfAbsent(parent, name -> new ArrayList<>()).add(indexes[i]);
+      }
+    }
+
+    for (Schema.Field field : directFields) {
+      if (nestedFields.containsKey(field.getName())) {
+        throw new IllegalArgumentException(String.format("Field '%s' cannot be added when fields are also added " +
+                                                           "inside it.", prefix + field.getName()));
+      }
+    }
+
+    String collisionMessage = null;
+    String collisionField = null;
+    Map<String, Schema.Field> replacements = new HashMap<>();
+    Map<String, OutputPlan> nestedPlans = new LinkedHashMap<>();
+    for (Map.Entry<String, List<Schema.Field>> entry : nestedFields.entrySet()) {
+      String name = entry.getKey();
+      Schema.Field field = inputSchema.getField(name);
+      Schema fieldSchema = field == null ? null : field.getSchema();
+      Schema recordSchema = fieldSchema != null && fieldSchema.isNullable() ?
+        fieldSchema.getNonNullable() : fieldSchema;
+      if (recordSchema == null || recordSchema.getType() != Schema.Type.RECORD) {
+        throw new IllegalArgumentException(String.format("Field '%s' does not exist in input or is not a record.",
+                                                         prefix + name));
+      }
+      List<Schema.Field> childFields = entry.getValue();
+      Set<String> childNames = new HashSet<>();
+      int[] childIndexes = new int[childFields.size()];
+      for (int i = 0; i < childIndexes.length; i++) {
+        childNames.add(childFields.get(i).getName());
+        childIndexes[i] = nestedIndexes.get(name).get(i);
+      }
+      OutputPlan child = create(recordSchema, childFields, childIndexes, childNames, policy,
+                                collisionFormat, prefix + name + ".", skipped);
+      if (collisionMessage == null) {
+        collisionMessage = child.collisionMessage;
+        collisionField = child.collisionField;
+      }
+      Schema childSchema = fieldSchema.isNullable() ? Schema.nullableOf(child.outputSchema) : child.outputSchema;
+      replacements.put(name, Schema.Field.of(name, childSchema));
+      nestedPlans.put(name, child);
+    }
+
+    List<Schema.Field> inputFields = inputSchema.getFields();
+    String collision = null;
+    for (Schema.Field field : inputFields) {
+      if (addedNames.contains(field.getName())) {
+        collision = field.getName();
+        break;
+      }
+    }
+    if (collision != null && policy == CollisionPolicy.ERROR && collisionMessage == null) {
+      collisionField = prefix + collision;
+      collisionMessage = String.format(collisionFormat, collisionField);
+    }
+
+    Map<String, Integer> addedIndexes = new LinkedHashMap<>();
+    List<Schema.Field> appendedFields = new ArrayList<>();
+    Set<String> taken = null;
+    for (int i = 0; i < directFields.size(); i++) {
+      Schema.Field field = directFields.get(i);
+      int index = directIndexes.get(i);
+      if (collision == null || policy == CollisionPolicy.ERROR || inputSchema.getField(field.getName()) == null) {
+        appendedFields.add(field);
+        addedIndexes.put(field.getName(), index);
+      } else if (policy == CollisionPolicy.OVERWRITE) {
+        replacements.put(field.getName(), field);
+        addedIndexes.put(field.getName(), index);
+      } else if (policy == CollisionPolicy.SKIP) {
+        skipped[index] = true;
+      } else {
+        if (taken == null) {
+          taken = new HashSet<>();
+          for (Schema.Field inputField : inputFields) {
+            taken.add(inputField.getName());
+          }
+          for (Schema.Field directField : directFields) {
+            taken.add(directField.getName());
+          }
+        }
+        String name = renamed(field.getName(), taken);
+        appendedFields.add(Schema.Field.of(name, field.getSchema()));
+        addedIndexes.put(name, index);
+      }
+    }
+
+    List<Schema.Field> outputFields = new ArrayList<>(inputFields.size() + appendedFields.size());
+    List<String> copiedFieldNames = new ArrayList<>(inputFields.size());
+    for (Schema.Field field : inputFields) {
+      Schema.Field replacement = replacements.get(field.getName());
+      if (replacement == null) {
+        outputFields.add(field);
+        copiedFieldNames.add(field.getName());
+      } else {
+        outputFields.add(replacement);
+      }
+    }
+    outputFields.addAll(appendedFields);
+    return new OutputPlan(Schema.recordOf(inputSchema.getRecordName() + ".added", outputFields), collisionMessage,
+                          collisionField, copiedFieldNames, nestedPlans, addedIndexes, skipped);
+  }
+
+  // returns the name followed by the first numeric suffix that is not taken yet, and takes it
+  private static String renamed(String name, Set<String> taken) {
+    for (int suffix = 1; ; suffix++) {
+      String renamed = name + "_" + suffix;
+      if (taken.add(renamed)) {
+        return renamed;
+      }
+    }
+  }
+
+  Schema getOutputSchema() {
+    return outputSchema;
+  }
+
+  /**
+   * Returns the error message for records of this input schema, or null if they can be transformed.
+   */
+  @Nullable
+  String getCollisionMessage() {
+    return collisionMessage;
+  }
+
+  /**
+   * Returns the path of the input field that makes records of this input schema fail, or null if they can be
+   * transformed. Plans that fail because of the same field return equal paths.
+   */
+  @Nullable
+  String getCollisionField() {
+    return collisionField;
+  }
+
+  /**
+   * Returns whether the added field with the given index is set, which it is not if the collision policy skips it.
+   */
+  boolean isAdded(int i) {
+    return !skipped[i];
+  }
+
+  /**
+   * Builds the output record for the given input record, with each added field set to the value at its index in
+   * the given values. Records on the path of a nested added field are rebuilt, unless they are null, in which case
+   * they stay null and the fields are not added to them. The schema of the record must be the input schema of this
+   * plan or one that is structurally equal to it.
+   */
+  StructuredRecord build(StructuredRecord record, Object[] values) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
+    for (String name : copiedFieldNames) {
+      builder.set(name, record.get(name));
+    }
+    for (int i = 0; i < nestedFieldNames.length; i++) {
+      StructuredRecord nested = record.get(nestedFieldNames[i]);
+      builder.set(nestedFieldNames[i], nested == null ? null : nestedPlans[i].build(nested, values));
+    }
+    for (int i = 0; i < addedFieldNames.length; i++) {
+      builder.set(addedFieldNames[i], values[addedIndexes[i]]);
+    }
+    return builder.build();
+  }
+}
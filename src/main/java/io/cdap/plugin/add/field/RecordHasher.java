@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Computes a 128 bit MurmurHash3 of some fields of a record, formatted as 32 lowercase hex digits, or reduced to a
+ * bucket number.
+ *
+ * Values are fed to the hash straight from the record, without converting them to strings first. Each value is
+ * preceded by a tag for its type, and strings and bytes by their length, so different combinations of values do
+ * not end up hashing the same bytes. The hash only depends on the values, so hex strings and buckets are the same in
+ * every run and JVM. Bucket numbers are boxed once per bucket and then reused, so computing a bucket does not
+ * allocate. Instances are not thread safe.
+ */
+final class RecordHasher {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final byte NULL = 0;
+  private static final byte BOOLEAN = 1;
+  private static final byte INT = 2;
+  private static final byte LONG = 3;
+  private static final byte FLOAT = 4;
+  private static final byte DOUBLE = 5;
+  private static final byte STRING = 6;
+  private static final byte BYTES = 7;
+
+  private final String[] fieldNames;
+  private final Murmur3Hasher hasher = new Murmur3Hasher();
+  private final char[] hex = new char[32];
+  private final Integer[] buckets;
+
+  RecordHasher(List<String> fieldNames) {
+    this(fieldNames, 0);
+  }
+
+  /**
+   * Creates a hasher for the given fields, which can compute buckets from 0 up to but not including the given number
+   * of buckets, if it is positive.
+   */
+  RecordHasher(List<String> fieldNames, int buckets) {
+    this.fieldNames = fieldNames.toArray(new String[0]);
+    this.buckets = new Integer[Math.max(buckets, 0)];
+  }
+
+  /**
+   * Returns whether values of the given schema can be hashed.
+   */
+  static boolean isSupported(Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+      case ENUM:
+      case BYTES:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  String hash(StructuredRecord record) {
+    computeHash(record);
+    writeHex(hasher.getH1(), 0);
+    writeHex(hasher.getH2(), 16);
+    return new String(hex);
+  }
+
+  /**
+   * Returns the bucket of the record, the first 64 bits of the hash modulo the number of buckets.
+   */
+  Integer bucket(StructuredRecord record) {
+    computeHash(record);
+    int bucket = (int) Math.floorMod(hasher.getH1(), (long) buckets.length);
+    Integer boxed = buckets[bucket];
+    if (boxed == null) {
+      boxed = bucket;
+      buckets[bucket] = boxed;
+    }
+    return boxed;
+  }
+
+  private void computeHash(StructuredRecord record) {
+    hasher.reset();
+    for (String fieldName : fieldNames) {
+      put(fieldName, record.get(fieldName));
+    }
+    hasher.finish();
+  }
+
+  private void put(String fieldName, Object value) {
+    if (value == null) {
+      hasher.putByte(NULL);
+    } else if (value instanceof String) {
+      String string = (String) value;
+      hasher.putByte(STRING);
+      hasher.putInt(string.length());
+      hasher.putChars(string);
+    } else if (value instanceof Integer) {
+      hasher.putByte(INT);
+      hasher.putInt((Integer) value);
+    } else if (value instanceof Long) {
+      hasher.putByte(LONG);
+      hasher.putLong((Long) value);
+    } else if (value instanceof Boolean) {
+      hasher.putByte(BOOLEAN);
+      hasher.putByte((Boolean) value ? 1 : 0);
+    } else if (value instanceof Double) {
+      hasher.putByte(DOUBLE);
+      hasher.putLong(Double.doubleToLongBits((Double) value));
+    } else if (value instanceof Float) {
+      hasher.putByte(FLOAT);
+      hasher.putInt(Float.floatToIntBits((Float) value));
+    } else if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      hasher.putByte(BYTES);
+      hasher.putInt(buffer.remaining());
+      hasher.putBytes(buffer);
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      hasher.putByte(BYTES);
+      hasher.putInt(bytes.length);
+      hasher.putBytes(bytes);
+    } else {
+      throw new IllegalArgumentException(String.format("Field '%s' of type %s cannot be hashed.",
+                                                       fieldName, value.getClass().getName()));
+    }
+  }
+
+  // writes the 8 bytes of the value in little endian order, to match the byte order of the hash
+  private void writeHex(long value, int offset) {
+    for (int i = 0; i < 8; i++) {
+      int b = (int) (value >>> (i << 3));
+      hex[offset + 2 * i] = HEX_DIGITS[(b >>> 4) & 0xF];
+      hex[offset + 2 * i + 1] = HEX_DIGITS[b & 0xF];
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+
+/**
+ * Rules that choose the value of an added field from the value of an input field, compiled into tables that take a
+ * fixed number of lookups per record, however many rules there are.
+ *
+ * Rules are given as a comma separated list of 'match:value' pairs, parsed by {@link FieldValueParser}. A match is
+ * one of:
+ * <ul>
+ *   <li>An exact key, such as 'EU'. Exact keys that are whole numbers also match int and long keys.</li>
+ *   <li>A prefix followed by '*', such as 'eu-*', which matches string keys that start with the prefix. If several
+ *   prefixes match, the longest one wins.</li>
+ *   <li>A range of whole numbers written as 'from..to', such as '10..20', which matches int and long keys from 'from'
+ *   up to but not including 'to'. Either bound can be left out. Ranges must not overlap.</li>
+ * </ul>
+ *
+ * String keys are looked up in a hash table of exact keys first, and then with a binary search over the sorted
+ * prefixes, where each prefix links to the longest other prefix it starts with. Numeric keys are looked up with a
+ * single binary search over the boundaries of the ranges and exact keys, flattened into disjoint intervals so that an
+ * exact key inside a range wins over the range. Keys that match nothing, and null keys, get the default value.
+ */
+final class RuleTable {
+  private final Map<String, String> exact;
+  private final String[] prefixes;
+  private final String[] prefixValues;
+  private final int[] prefixParents;
+  private final long[] starts;
+  private final String[] intervalValues;
+  private final String defaultValue;
+
+  private RuleTable(Map<String, String> exact, String[] prefixes, String[] prefixValues, int[] prefixParents,
+                    long[] starts, String[] intervalValues, @Nullable String defaultValue) {
+    this.exact = exact;
+    this.prefixes = prefixes;
+    this.prefixValues = prefixValues;
+    this.prefixParents = prefixParents;
+    this.starts = starts;
+    this.intervalValues = intervalValues;
+    this.defaultValue = defaultValue;
+  }
+
+  /**
+   * Compiles the given rules.
+   *
+   * @param rules the rules property, a comma separated list of 'match:value' pairs
+   * @param defaultValue the value for keys that match no rule, or null
+   * @throws IllegalArgumentException if the rules cannot be parsed, a match is specified more than once, a range is
+   *   not valid, or ranges overlap
+   */
+  static RuleTable compile(@Nullable String rules, @Nullable String defaultValue) {
+    Map<String, String> exact = new HashMap<>();
+    TreeMap<String, String> prefixes = new TreeMap<>();
+    Map<Long, String> points = new HashMap<>();
+    TreeMap<Long, Range> ranges = new TreeMap<>();
+    for (FieldValueParser.Pair pair : FieldValueParser.parse(rules)) {
+      String match = pair.getName();
+      if (pair.getValue() == null || pair.getType() != null) {
+        throw new IllegalArgumentException(String.format("Rule '%s' at character %d must be specified as " +
+                                                           "'match:value'.", match, pair.getPosition()));
+      }
+      String value = pair.getValue();
+      boolean added;
+      int dots = match.indexOf("..");
+      if (match.endsWith("*")) {
+        added = prefixes.putIfAbsent(match.substring(0, match.length() - 1), value) == null;
+      } else if (dots >= 0) {
+        Range range = parseRange(match, dots, value, pair.getPosition());
+        Range previous = ranges.putIfAbsent(range.from, range);
+        if (previous != null) {
+          throw new IllegalArgumentException(String.format("Range '%s' at character %d overlaps range '%s'.",
+                                                           match, pair.getPosition(), previous.match));
+        }
+        added = true;
+      } else {
+        Long number = parseLong(match);
+        added = exact.putIfAbsent(match, value) == null &&
+          (number == null || points.putIfAbsent(number, value) == null);
+      }
+      if (!added) {
+        throw new IllegalArgumentException(String.format("Rule '%s' at character %d is specified multiple times.",
+                                                         match, pair.getPosition()));
+      }
+    }
+
+    String[] prefixArray = prefixes.keySet().toArray(new String[0]);
+    String[] prefixValues = prefixes.values().toArray(new String[0]);
+    int[] parents = new int[prefixArray.length];
+    for (int i = 0; i < prefixArray.length; i++) {
+      // the longest prefix of prefix i is either the entry before it, or a prefix of that entry
+      int parent = i - 1;
+      while (parent >= 0 && !prefixArray[i].startsWith(prefixArray[parent])) {
+        parent = parents[parent];
+      }
+      parents[i] = parent;
+    }
+
+    // every exact number is an interval of its own, so it wins over a range that contains it
+    long[] starts = flatten(ranges, points);
+    String[] intervalValues = new String[starts.length];
+    for (int i = 0; i < starts.length; i++) {
+      String value = points.get(starts[i]);
+      if (value == null) {
+        Map.Entry<Long, Range> entry = ranges.floorEntry(starts[i]);
+        value = entry != null && entry.getValue().contains(starts[i]) ? entry.getValue().value : null;
+      }
+      intervalValues[i] = value;
+    }
+    return new RuleTable(exact, prefixArray, prefixValues, parents, starts, intervalValues, defaultValue);
+  }
+
+  // returns the sorted starts of the disjoint intervals that the ranges and exact numbers divide the longs into
+  private static long[] flatten(TreeMap<Long, Range> ranges, Map<Long, String> points) {
+    Range previous = null;
+    TreeSet<Long> boundaries = new TreeSet<>();
+    boundaries.add(Long.MIN_VALUE);
+    for (Range range : ranges.values()) {
+      if (previous != null && (previous.to == null || previous.to > range.from)) {
+        throw new IllegalArgumentException(String.format("Range '%s' at character %d overlaps range '%s'.",
+                                                         range.match, range.position, previous.match));
+      }
+      boundaries.add(range.from);
+      if (range.to != null) {
+        boundaries.add(range.to);
+      }
+      previous = range;
+    }
+    for (long point : points.keySet()) {
+      boundaries.add(point);
+      if (point != Long.MAX_VALUE) {
+        boundaries.add(point + 1);
+      }
+    }
+    long[] starts = new long[boundaries.size()];
+    int i = 0;
+    for (long boundary : boundaries) {
+      starts[i++] = boundary;
+    }
+    return starts;
+  }
+
+  private static Range parseRange(String match, int dots, String value, int position) {
+    String from = match.substring(0, dots);
+    String to = match.substring(dots + 2);
+    Long fromNumber = from.isEmpty() ? Long.valueOf(Long.MIN_VALUE) : parseLong(from);
+    Long toNumber = to.isEmpty() ? null : parseLong(to);
+    if (fromNumber == null || (toNumber == null && !to.isEmpty())) {
+      throw new IllegalArgumentException(String.format("Range '%s' at character %d must be bounded by whole " +
+                                                         "numbers.", match, position));
+    }
+    if (toNumber != null && toNumber <= fromNumber) {
+      throw new IllegalArgumentException(String.format("Range '%s' at character %d is empty.", match, position));
+    }
+    return new Range(match, position, fromNumber, toNumber, value);
+  }
+
+  @Nullable
+  private static Long parseLong(String value) {
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether values of the given schema can be used as rule keys.
+   */
+  static boolean isKeySupported(Schema schema) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    switch (nonNullable.getType()) {
+      case INT:
+      case LONG:
+      case STRING:
+        return nonNullable.getLogicalType() == null;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the value of the rule that the given key matches, or the default value if it matches none.
+   */
+  @Nullable
+  String get(@Nullable Object key) {
+    if (key instanceof String) {
+      return get((String) key);
+    }
+    if (key instanceof Integer || key instanceof Long) {
+      return get(((Number) key).longValue());
+    }
+    return defaultValue;
+  }
+
+  private String get(String key) {
+    String value = exact.get(key);
+    if (value != null) {
+      return value;
+    }
+    int i = Arrays.binarySearch(prefixes, key);
+    // every prefix of the key sorts before it, and the greatest one that does is either a prefix of the key or
+    // starts with each prefix of the key
+    for (i = i < 0 ? -i - 2 : i; i >= 0; i = prefixParents[i]) {
+      if (key.startsWith(prefixes[i])) {
+        return prefixValues[i];
+      }
+    }
+    return defaultValue;
+  }
+
+  private String get(long key) {
+    int i = Arrays.binarySearch(starts, key);
+    String value = intervalValues[i < 0 ? -i - 2 : i];
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * A range rule, from its inclusive lower bound to its exclusive upper bound, which is null if it has none.
+   */
+  private static final class Range {
+    private final String match;
+    private final int position;
+    private final long from;
+    private final Long to;
+    private final String value;
+
+    private Range(String match, int position, long from, @Nullable Long to, String value) {
+      this.match = match;
+      this.position = position;
+      this.from = from;
+      this.to = to;
+      this.value = value;
+    }
+
+    private boolean contains(long key) {
+      return key >= from && (to == null || key < to);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A small, bounded cache of values derived from an input schema. Records flowing through a stage almost always
+ * share the same schema instance, so the most recently used schema is checked by identity before falling back to
+ * a lookup by structural equality. Least recently used entries are evicted once the cache is full.
+ *
+ * Instances are not thread safe and are meant to be owned by a single transform instance.
+ *
+ * @param <V> type of the cached value
+ */
+final class SchemaCache<V> {
+  static final int DEFAULT_MAX_ENTRIES = 16;
+
+  private final Map<Schema, Entry<V>> entries;
+  private final Function<Schema, V> loader;
+  private Schema lastSchema;
+  private V lastValue;
+  private long hits;
+  private long misses;
+
+  SchemaCache(Function<Schema, V> loader) {
+    this(DEFAULT_MAX_ENTRIES, loader);
+  }
+
+  SchemaCache(int maxEntries, Function<Schema, V> loader) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Schema cache must hold at least one entry.");
+    }
+    this.loader = loader;
+    this.entries = new LinkedHashMap<Schema, Entry<V>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Schema, Entry<V>> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the value for the given schema, computing and caching it if it is not already present.
+   */
+  V get(Schema schema) {
+    if (schema == lastSchema) {
+      hits++;
+      return lastValue;
+    }
+    Entry<V> entry = entries.get(schema);
+    // schema equality is structural and ignores record names, which are part of the derived output schema
+    if (entry == null || !Objects.equals(schema.getRecordName(), entry.schema.getRecordName())) {
+      misses++;
+      entry = new Entry<>(schema, loader.apply(schema));
+      entries.put(schema, entry);
+    } else {
+      hits++;
+    }
+    lastSchema = schema;
+    lastValue = entry.value;
+    return entry.value;
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of lookups that were answered from the cache.
+   */
+  long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups that had to compute a new value.
+   */
+  long getMisses() {
+    return misses;
+  }
+
+  /**
+   * A cached value along with the schema it was derived from.
+   */
+  private static final class Entry<V> {
+    private final Schema schema;
+    private final V value;
+
+    private Entry(Schema schema, V value) {
+      this.schema = schema;
+      this.value = value;
+    }
+  }
+}
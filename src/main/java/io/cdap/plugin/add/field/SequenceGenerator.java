@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.apache.spark.TaskContext;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+/**
+ * Generates increasing 64 bit IDs without any coordination between tasks, in the style of Snowflake IDs. From the
+ * most significant bit, an ID is made of:
+ *
+ * <ul>
+ *   <li>a 0 sign bit</li>
+ *   <li>41 bits of milliseconds since {@link #EPOCH_MILLIS}, which lasts until 2089</li>
+ *   <li>12 bits of stripe, which should be different for every task that generates IDs at the same time</li>
+ *   <li>10 bits of counter, for IDs generated within the same millisecond</li>
+ * </ul>
+ *
+ * IDs from one generator are strictly increasing. If the counter runs out within a millisecond, or the clock goes
+ * backwards, the generator moves on to the next millisecond rather than waiting for the clock. IDs from generators
+ * with different stripes never collide, but generators that share a stripe can generate the same IDs if they run at
+ * the same time. Instances are not thread safe.
+ *
+ * {@link #taskStripe()} returns the partition of the running Spark task as the stripe, so the tasks of a stage
+ * never share one as long as there are at most 4096 partitions. Outside of Spark, such as in a MapReduce task,
+ * nothing identifies the task, so it falls back to a stripe that is only distinct within the process. IDs are then
+ * only guaranteed to be unique within a task, see {@link StripeCounter} for the chance that tasks in different
+ * processes share a stripe.
+ */
+final class SequenceGenerator {
+  // 2020-01-01T00:00:00Z
+  static final long EPOCH_MILLIS = 1577836800000L;
+  static final int STRIPE_BITS = 12;
+  static final int COUNTER_BITS = 10;
+  static final int MAX_STRIPE = (1 << STRIPE_BITS) - 1;
+  private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+  private static final StripeCounter PROCESS_STRIPES = new StripeCounter(new SecureRandom().nextInt());
+
+  private final long stripeBits;
+  private final LongSupplier clock;
+  private long lastMillis = -1;
+  private int counter;
+
+  SequenceGenerator(int stripe) {
+    this(stripe, System::currentTimeMillis);
+  }
+
+  SequenceGenerator(int stripe, LongSupplier clock) {
+    if (stripe < 0 || stripe > MAX_STRIPE) {
+      throw new IllegalArgumentException(String.format("Stripe must be between 0 and %d.", MAX_STRIPE));
+    }
+    this.stripeBits = (long) stripe << COUNTER_BITS;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the stripe of the running task: its partition if it is a Spark task, or otherwise the next stripe of
+   * this process, which is only different from the ones returned to the previous 4095 callers in the process.
+   */
+  static int taskStripe() {
+    return taskStripe(sparkPartition(), PROCESS_STRIPES);
+  }
+
+  /**
+   * Returns the stripe of a task with the given partition, or the next stripe of the given process if the partition
+   * is not known.
+   */
+  static int taskStripe(@Nullable Integer partition, StripeCounter processStripes) {
+    return partition == null ? processStripes.next() : partition & MAX_STRIPE;
+  }
+
+  @Nullable
+  private static Integer sparkPartition() {
+    try {
+      TaskContext taskContext = TaskContext.get();
+      return taskContext == null ? null : taskContext.partitionId();
+    } catch (NoClassDefFoundError e) {
+      // spark is not on the classpath of mapreduce tasks
+      return null;
+    }
+  }
+
+  long next() {
+    long millis = clock.getAsLong() - EPOCH_MILLIS;
+    if (millis > lastMillis) {
+      lastMillis = millis;
+      counter = 0;
+    } else if (++counter > MAX_COUNTER) {
+      lastMillis++;
+      counter = 0;
+    }
+    return lastMillis << (STRIPE_BITS + COUNTER_BITS) | stripeBits | counter;
+  }
+
+  /**
+   * Hands out consecutive stripes from a random start, for tasks that are not Spark tasks. Stripes from one counter
+   * are distinct until 4096 of them have been handed out, but counters in different processes start independently,
+   * so their stripes can overlap. If n processes each hand out at most t stripes, the chance that any two of them
+   * share a stripe is about 1 - exp(-n(n - 1)(2t - 1) / 8192): about 1% for 10 processes with one task each, 7% with
+   * four tasks each, and 26% for 50 processes with one task each.
+   */
+  static final class StripeCounter {
+    private final AtomicInteger next;
+
+    StripeCounter(int start) {
+      this.next = new AtomicInteger(start);
+    }
+
+    int next() {
+      return next.getAndIncrement() & MAX_STRIPE;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A cache of output plans shared by every transform instance in the JVM, so that when an executor runs many tasks of
+ * the same stage, only the first one plans each input schema. It sits behind the {@link SchemaCache} of each
+ * instance, which still answers the lookups for every record.
+ *
+ * Plans are keyed by a plan key, which describes the added fields and how collisions are resolved as derived from
+ * the plugin config, together with the input schema. Stages whose configs add the same fields in the same way share
+ * plans, which is safe because plans are immutable.
+ *
+ * Lookups are reads of a {@link ConcurrentHashMap} and do not lock. A plan that is not cached is computed without
+ * holding any lock, so tasks that miss at the same time may each compute it, and the first one stored is kept. Once
+ * the cache holds more than its maximum number of entries, the least recently used ones are evicted. Finding them
+ * takes a scan of the cache, which only happens when a new plan is stored.
+ */
+final class SharedPlanCache {
+  static final int DEFAULT_MAX_ENTRIES = 256;
+  static final SharedPlanCache INSTANCE = new SharedPlanCache(DEFAULT_MAX_ENTRIES);
+
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong clock = new AtomicLong();
+  private final int maxEntries;
+
+  SharedPlanCache(int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Shared plan cache must hold at least one entry.");
+    }
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Returns a plan key for plans of the given added fields, collision policy and collision message format.
+   */
+  static String planKey(List<Schema.Field> addedFields, CollisionPolicy policy, String collisionFormat) {
+    StringBuilder key = new StringBuilder(String.valueOf(policy)).append('\n').append(collisionFormat);
+    for (Schema.Field field : addedFields) {
+      key.append('\n').append(field.getName()).append('\n').append(field.getSchema());
+    }
+    return key.toString();
+  }
+
+  /**
+   * Returns the plan for the given plan key and input schema, computing it with the given planner and caching it if
+   * it is not already present.
+   *
+   * @throws IllegalArgumentException if the planner throws it, in which case nothing is cached
+   */
+  OutputPlan get(String planKey, Schema inputSchema, Function<Schema, OutputPlan> planner) {
+    Key key = new Key(planKey, inputSchema);
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      entry.lastUsed = clock.incrementAndGet();
+      return entry.plan;
+    }
+    entry = new Entry(planner.apply(inputSchema), clock.incrementAndGet());
+    Entry previous = entries.putIfAbsent(key, entry);
+    if (previous != null) {
+      return previous.plan;
+    }
+    if (entries.size() > maxEntries) {
+      evict();
+    }
+    return entry.plan;
+  }
+
+  private void evict() {
+    while (entries.size() > maxEntries) {
+      Key eldest = null;
+      long eldestUsed = Long.MAX_VALUE;
+      for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+        if (entry.getValue().lastUsed < eldestUsed) {
+          eldest = entry.getKey();
+          eldestUsed = entry.getValue().lastUsed;
+        }
+      }
+      if (eldest == null) {
+        return;
+      }
+      entries.remove(eldest);
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * A plan key and an input schema. Schema equality is structural and ignores record names, which are part of the
+   * planned output schema, so they are compared as well.
+   */
+  private static final class Key {
+    private final String planKey;
+    private final Schema schema;
+
+    private Key(String planKey, Schema schema) {
+      this.planKey = planKey;
+      this.schema = schema;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return planKey.equals(other.planKey) && schema.equals(other.schema) &&
+        Objects.equals(schema.getRecordName(), other.schema.getRecordName());
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * planKey.hashCode() + schema.hashCode();
+    }
+  }
+
+  /**
+   * A cached plan and the value of the clock when it was last used.
+   */
+  private static final class Entry {
+    private final OutputPlan plan;
+    private volatile long lastUsed;
+
+    private Entry(OutputPlan plan, long lastUsed) {
+      this.plan = plan;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
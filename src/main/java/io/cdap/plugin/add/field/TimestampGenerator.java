@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Generates processing time values, either as timestamp micros or as strings in a configured format, truncated to a
+ * granularity.
+ *
+ * Values are only created when the clock moves on to a new tick of the granularity. Until then, the same boxed
+ * timestamp or formatted string is returned, so coarse granularities cost a clock read per record and nothing else.
+ * Instances are not thread safe.
+ */
+final class TimestampGenerator {
+  private final Granularity granularity;
+  private final DateTimeFormatter formatter;
+  private final Clock clock;
+  private long lastTick = Long.MIN_VALUE;
+  private Object lastValue;
+
+  TimestampGenerator(Granularity granularity, @Nullable String format) {
+    this(granularity, format, Clock.systemUTC());
+  }
+
+  TimestampGenerator(Granularity granularity, @Nullable String format, Clock clock) {
+    this.granularity = granularity;
+    this.formatter = format == null ? null : DateTimeFormatter.ofPattern(format).withZone(ZoneOffset.UTC);
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the current time, as a Long of microseconds since the epoch, or as a formatted String.
+   */
+  Object next() {
+    long micros;
+    switch (granularity) {
+      case RECORD:
+        Instant instant = clock.instant();
+        micros = TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(instant.getNano());
+        break;
+      case MILLISECOND:
+        micros = TimeUnit.MILLISECONDS.toMicros(clock.millis());
+        break;
+      case SECOND:
+        micros = TimeUnit.SECONDS.toMicros(Math.floorDiv(clock.millis(), 1000));
+        break;
+      default:
+        if (lastValue != null) {
+          return lastValue;
+        }
+        micros = TimeUnit.MILLISECONDS.toMicros(clock.millis());
+    }
+    if (micros != lastTick || lastValue == null) {
+      lastTick = micros;
+      lastValue = format(micros);
+    }
+    return lastValue;
+  }
+
+  private Object format(long micros) {
+    if (formatter == null) {
+      return micros;
+    }
+    long seconds = Math.floorDiv(micros, 1000000);
+    return formatter.format(Instant.ofEpochSecond(seconds, TimeUnit.MICROSECONDS.toNanos(micros - seconds * 1000000)));
+  }
+
+  /**
+   * How often the timestamp changes.
+   */
+  enum Granularity {
+    /**
+     * Reads the clock with its full precision for every record, up to microseconds.
+     */
+    RECORD("record"),
+
+    /**
+     * Truncates the time to milliseconds.
+     */
+    MILLISECOND("millisecond"),
+
+    /**
+     * Truncates the time to seconds.
+     */
+    SECOND("second"),
+
+    /**
+     * Uses the time of the first record of the task for every record.
+     */
+    TASK("task");
+
+    private final String value;
+
+    Granularity(String value) {
+      this.value = value;
+    }
+
+    String getValue() {
+      return value;
+    }
+
+    /**
+     * Returns the granularity with the given configuration value, or null if there is none.
+     */
+    @Nullable
+    static Granularity fromValue(String value) {
+      for (Granularity granularity : values()) {
+        if (granularity.value.equalsIgnoreCase(value)) {
+          return granularity;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts what a field adding transform does and publishes it as stage metrics. Counts are kept in plain fields and
+ * only handed to {@link StageMetrics} every {@link #FLUSH_INTERVAL} records and when the transform is destroyed, so
+ * the per-record cost is a few increments.
+ *
+ * When a sample interval is configured, one out of every that many records is timed and counted in a histogram of
+ * power of two nanosecond buckets, published as {@code record.nanos.le.<bound>} counters.
+ *
+ * When an error sample interval is configured, only one out of every that many records that fail because of the
+ * same input field is sent to the error emitter, since a bad schema can make every record of a run fail and the error
+ * dataset then becomes the bottleneck. Each field is sampled on its own, so records that alternate between failures
+ * still only send one out of every that many of each. Every failure is still counted, in total and for each field,
+ * and the ones that were sent are counted separately.
+ *
+ * Instances are not thread safe and are meant to be owned by a single transform instance.
+ */
+final class TransformMetrics {
+  static final String RECORDS = "records.processed";
+  static final String COLLISION_ERRORS = "collision.errors";
+  static final String COLLISION_ERRORS_EMITTED = "collision.errors.emitted";
+  static final String COLLISION_ERRORS_FIELD_PREFIX = "collision.errors.field.";
+  static final String CACHE_HITS = "schema.cache.hits";
+  static final String CACHE_MISSES = "schema.cache.misses";
+  static final String SAMPLED_RECORDS = "record.nanos.samples";
+  static final String NANOS_BUCKET_PREFIX = "record.nanos.le.";
+  static final String NANOS_OVERFLOW_BUCKET = NANOS_BUCKET_PREFIX + "max";
+  static final int FLUSH_INTERVAL = 1024;
+
+  // buckets cover 2^MIN_BUCKET_BITS to 2^MAX_BUCKET_BITS nanoseconds, plus one overflow bucket
+  private static final int MIN_BUCKET_BITS = 7;
+  private static final int MAX_BUCKET_BITS = 24;
+  private static final String[] BUCKET_NAMES = bucketNames();
+
+  private final StageMetrics metrics;
+  private final SchemaCache<?> schemaCache;
+  private final int sampleInterval;
+  private final int errorSampleInterval;
+  private final int[] buckets = new int[BUCKET_NAMES.length];
+  // failures for each input field that made records fail, of which there are at most as many as added fields
+  private final Map<String, CollisionCounts> collisions = new LinkedHashMap<>();
+
+  private int records;
+  private int collisionErrors;
+  private int emittedCollisionErrors;
+  private CollisionCounts lastCollision;
+  private int samples;
+  private long publishedHits;
+  private long publishedMisses;
+  private int sinceSample;
+  private long sampleStartNanos;
+  private boolean sampling;
+
+  /**
+   * @param metrics the stage metrics to publish to
+   * @param schemaCache the cache whose hits and misses are published
+   * @param sampleInterval time one out of every this many records, or 0 to disable timing
+   */
+  TransformMetrics(StageMetrics metrics, SchemaCache<?> schemaCache, int sampleInterval) {
+    this(metrics, schemaCache, sampleInterval, 1);
+  }
+
+  /**
+   * @param metrics the stage metrics to publish to
+   * @param schemaCache the cache whose hits and misses are published
+   * @param sampleInterval time one out of every this many records, or 0 to disable timing
+   * @param errorSampleInterval send one out of every this many records that fail with the same error to the error
+   *   emitter, or 1 to send all of them
+   */
+  TransformMetrics(StageMetrics metrics, SchemaCache<?> schemaCache, int sampleInterval, int errorSampleInterval) {
+    this.metrics = metrics;
+    this.schemaCache = schemaCache;
+    this.sampleInterval = sampleInterval;
+    this.errorSampleInterval = Math.max(errorSampleInterval, 1);
+  }
+
+  /**
+   * Called before a record is transformed.
+   */
+  void recordStarted() {
+    if (sampleInterval > 0 && ++sinceSample >= sampleInterval) {
+      sinceSample = 0;
+      sampling = true;
+      sampleStartNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Called after a record was emitted.
+   */
+  void recordEmitted() {
+    recordFinished();
+  }
+
+  /**
+   * Called when a record fails because the input already contains an added field. Returns true if the record should
+   * be sent to the error emitter, which is the case for the first failure because of the given field, and for one
+   * out of every error sample interval failures because of it after that. The caller must then call
+   * {@link #collisionEmitted()}. Otherwise the record is finished here.
+   *
+   * @param field the path of the input field that made the record fail, as returned by
+   *   {@link OutputPlan#getCollisionField()}
+   */
+  boolean collisionFailed(String field) {
+    CollisionCounts counts = lastCollision;
+    // paths are precomputed per plan, so consecutive failures of the same plan are found by identity
+    if (counts == null || counts.field != field) {
+      counts = collisions.computeIfAbsent(field, CollisionCounts::new);
+      lastCollision = counts;
+    }
+    collisionErrors++;
+    counts.unpublished++;
+    if (counts.failures++ % errorSampleInterval == 0) {
+      return true;
+    }
+    recordFinished();
+    return false;
+  }
+
+  /**
+   * Called after a record was sent to the error emitter because the input already contains an added field.
+   */
+  void collisionEmitted() {
+    emittedCollisionErrors++;
+    recordFinished();
+  }
+
+  /**
+   * Publishes all counts that were not published yet.
+   */
+  void flush() {
+    if (records > 0) {
+      metrics.count(RECORDS, records);
+      records = 0;
+    }
+    if (collisionErrors > 0) {
+      metrics.count(COLLISION_ERRORS, collisionErrors);
+      collisionErrors = 0;
+    }
+    if (emittedCollisionErrors > 0) {
+      metrics.count(COLLISION_ERRORS_EMITTED, emittedCollisionErrors);
+      emittedCollisionErrors = 0;
+    }
+    for (CollisionCounts counts : collisions.values()) {
+      if (counts.unpublished > 0) {
+        metrics.count(counts.metricName, counts.unpublished);
+        counts.unpublished = 0;
+      }
+    }
+    if (samples > 0) {
+      metrics.count(SAMPLED_RECORDS, samples);
+      samples = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        if (buckets[i] > 0) {
+          metrics.count(BUCKET_NAMES[i], buckets[i]);
+          buckets[i] = 0;
+        }
+      }
+    }
+    long hits = schemaCache.getHits();
+    if (hits > publishedHits) {
+      metrics.count(CACHE_HITS, (int) (hits - publishedHits));
+      publishedHits = hits;
+    }
+    long misses = schemaCache.getMisses();
+    if (misses > publishedMisses) {
+      metrics.count(CACHE_MISSES, (int) (misses - publishedMisses));
+      publishedMisses = misses;
+    }
+  }
+
+  private void recordFinished() {
+    if (sampling) {
+      sampling = false;
+      samples++;
+      buckets[bucket(System.nanoTime() - sampleStartNanos)]++;
+    }
+    if (++records >= FLUSH_INTERVAL) {
+      flush();
+    }
+  }
+
+  /**
+   * Returns the index of the smallest bucket whose upper bound is at least the given number of nanoseconds.
+   */
+  static int bucket(long nanos) {
+    int bits = 64 - Long.numberOfLeadingZeros(Math.max(nanos - 1, 0));
+    return Math.min(Math.max(bits, MIN_BUCKET_BITS), MAX_BUCKET_BITS + 1) - MIN_BUCKET_BITS;
+  }
+
+  static String bucketName(int bucket) {
+    return BUCKET_NAMES[bucket];
+  }
+
+  private static String[] bucketNames() {
+    String[] names = new String[MAX_BUCKET_BITS - MIN_BUCKET_BITS + 2];
+    for (int i = 0; i < names.length - 1; i++) {
+      names[i] = NANOS_BUCKET_PREFIX + (1L << (MIN_BUCKET_BITS + i));
+    }
+    names[names.length - 1] = NANOS_OVERFLOW_BUCKET;
+    return names;
+  }
+
+  /**
+   * The failures because of one input field.
+   */
+  private static final class CollisionCounts {
+    private final String field;
+    private final String metricName;
+    // every failure so far, which decides the ones that are sampled
+    private long failures;
+    private int unpublished;
+
+    private CollisionCounts(String field) {
+      this.field = field;
+      this.metricName = COLLISION_ERRORS_FIELD_PREFIX + field;
+    }
+  }
+}
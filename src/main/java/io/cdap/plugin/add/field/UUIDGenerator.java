@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
+
+/**
+ * Strategies for generating UUIDs.
+ */
+public enum UUIDGenerator {
+  /**
+   * Random (version 4) UUIDs from {@link UUID#randomUUID()}. 122 bits come from the shared {@link
+   * java.security.SecureRandom}, so values are unique with overwhelming probability and are not predictable, but
+   * every thread in the JVM contends on the same generator.
+   */
+  SECURE("secure") {
+    @Override
+    public UUID generate() {
+      return UUID.randomUUID();
+    }
+
+    @Override
+    UUID generate(SplittableRandom random) {
+      return UUID.randomUUID();
+    }
+  },
+
+  /**
+   * Version 4 UUIDs whose 122 random looking bits come from {@link ThreadLocalRandom}, so threads never contend.
+   * ThreadLocalRandom has only 64 bits of state per thread, and {@link SplittableRandom} as well, so a UUID carries
+   * at most 64 bits of entropy rather than the 122 that version 4 implies, and every later UUID of the same thread
+   * follows from any one of them. Two generators whose seeds collide produce the same sequence, and with many
+   * generators, such as many runs of many executors, the chance of that follows the birthday bound over 64 bits
+   * instead of 122. Must not be used where values have to be unguessable, or globally unique across a very large
+   * number of generators; use {@link #SECURE} there.
+   */
+  FAST("fast") {
+    @Override
+    public UUID generate() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return randomUUID(random.nextLong(), random.nextLong());
+    }
+
+    @Override
+    UUID generate(SplittableRandom random) {
+      return randomUUID(random.nextLong(), random.nextLong());
+    }
+  },
+
+  /**
+   * Time-ordered (version 7) UUIDs. The first 48 bits hold the Unix epoch time in milliseconds, so values sort by
+   * creation time, which keeps inserts into downstream indexes local. The remaining 74 bits come from
+   * {@link ThreadLocalRandom}, so values are unique unless two of them are generated in the same millisecond with
+   * the same random bits. Values generated within the same millisecond are not ordered relative to each other. As
+   * with {@link #FAST}, the random bits come from at most 64 bits of per-thread state, so values are predictable and
+   * must not be used where they have to be unguessable.
+   */
+  TIME_ORDERED("time-ordered") {
+    @Override
+    public UUID generate() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      return timeOrderedUUID(System.currentTimeMillis(), random.nextInt(), random.nextLong());
+    }
+
+    @Override
+    UUID generate(SplittableRandom random) {
+      return timeOrderedUUID(System.currentTimeMillis(), random.nextInt(), random.nextLong());
+    }
+  };
+
+  private final String value;
+
+  UUIDGenerator(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Generates a new UUID. Safe to call from multiple threads.
+   */
+  public abstract UUID generate();
+
+  /**
+   * Generates a new UUID, drawing random bits from the given generator instead of a shared or per-thread one. This
+   * lets callers that own their random state, such as a single Spark partition, generate UUIDs without touching any
+   * state shared with other callers. {@link #SECURE} always uses the shared secure random generator.
+   */
+  abstract UUID generate(SplittableRandom random);
+
+  private static UUID randomUUID(long randomHigh, long randomLow) {
+    long msb = (randomHigh & ~0xF000L) | 0x4000L;
+    long lsb = (randomLow & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  private static UUID timeOrderedUUID(long millis, int randomHigh, long randomLow) {
+    long msb = (millis << 16) | 0x7000L | (randomHigh & 0x0FFF);
+    long lsb = (randomLow & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  /**
+   * Returns the generator with the given configuration value, or null if there is none.
+   */
+  @Nullable
+  public static UUIDGenerator fromValue(String value) {
+    for (UUIDGenerator generator : values()) {
+      if (generator.value.equalsIgnoreCase(value)) {
+        return generator;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import javax.annotation.Nullable;
+
+/**
+ * Generates the value of a field that {@link MultiFieldAdder} adds, once for every record. Generators are created
+ * by a {@link ValueGeneratorFactory} once per task and are only called from that task's thread, so they do not need
+ * to be thread safe.
+ */
+@FunctionalInterface
+public interface ValueGenerator {
+
+  /**
+   * Returns the value for the next record, which must match the schema returned by the factory.
+   */
+  @Nullable
+  Object next();
+}
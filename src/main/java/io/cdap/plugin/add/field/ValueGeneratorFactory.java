@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.StageContext;
+
+import javax.annotation.Nullable;
+
+/**
+ * Creates {@link ValueGenerator}s for the 'generatedFields' property of {@link MultiFieldAdder}, where a field is
+ * specified as 'name:generator' or 'name:generator:argument'.
+ *
+ * Factories are discovered with {@link java.util.ServiceLoader}, so a generator is added by implementing this
+ * interface in a public class with a public no-argument constructor, and listing that class in
+ * {@code META-INF/services/io.cdap.plugin.add.field.ValueGeneratorFactory} of a jar that is embedded in the plugin.
+ */
+public interface ValueGeneratorFactory {
+
+  /**
+   * Returns the name that fields use to select this generator. Names are matched ignoring case.
+   */
+  String getName();
+
+  /**
+   * Returns the schema of the values generated for the given argument. This is called when the pipeline is
+   * configured, so it must not depend on the runtime environment.
+   *
+   * @param argument the configured argument, or null if there is none
+   * @throws IllegalArgumentException if the argument is not valid for this generator
+   */
+  Schema getSchema(@Nullable String argument);
+
+  /**
+   * Creates a generator for the given argument. This is called once per task, when the stage is initialized.
+   *
+   * @param argument the configured argument, or null if there is none
+   * @param context the context of the stage
+   * @throws IllegalArgumentException if the argument is not valid for this generator
+   */
+  ValueGenerator create(@Nullable String argument, StageContext context);
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.StageContext;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * The {@link ValueGeneratorFactory} implementations found with {@link ServiceLoader}, and the built-in ones:
+ *
+ * <ul>
+ *   <li><b>constant:</b> The argument as a string, for every record.</li>
+ *   <li><b>uuid:</b> A new UUID string for every record. The argument is the UUID generator, one of 'secure',
+ *   'fast' or 'time-ordered', and defaults to 'secure'.</li>
+ *   <li><b>sequence:</b> A long that increases for every record, as generated by {@link SequenceGenerator}. Values
+ *   are unique across the tasks of a stage on Spark, but only within a task on MapReduce. It takes no argument.</li>
+ * </ul>
+ *
+ * Factories are loaded once per class loader and kept for its lifetime. If several factories have the same name,
+ * the first one found is used.
+ */
+public final class ValueGenerators {
+  private static final Map<String, ValueGeneratorFactory> FACTORIES = load();
+
+  private ValueGenerators() {
+  }
+
+  private static Map<String, ValueGeneratorFactory> load() {
+    Map<String, ValueGeneratorFactory> factories = new TreeMap<>();
+    for (ValueGeneratorFactory factory : ServiceLoader.load(ValueGeneratorFactory.class,
+                                                            ValueGeneratorFactory.class.getClassLoader())) {
+      factories.putIfAbsent(factory.getName().toLowerCase(Locale.ROOT), factory);
+    }
+    return Collections.unmodifiableMap(factories);
+  }
+
+  /**
+   * Returns the factory with the given name, or null if there is none.
+   */
+  @Nullable
+  static ValueGeneratorFactory get(String name) {
+    return FACTORIES.get(name.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Returns the names of all factories, in alphabetical order.
+   */
+  static Iterable<String> getNames() {
+    return FACTORIES.keySet();
+  }
+
+  /**
+   * Sets every record to the argument.
+   */
+  public static final class Constant implements ValueGeneratorFactory {
+
+    @Override
+    public String getName() {
+      return "constant";
+    }
+
+    @Override
+    public Schema getSchema(@Nullable String argument) {
+      if (argument == null) {
+        throw new IllegalArgumentException("The constant generator requires the value as its argument.");
+      }
+      return Schema.of(Schema.Type.STRING);
+    }
+
+    @Override
+    public ValueGenerator create(@Nullable String argument, StageContext context) {
+      getSchema(argument);
+      return () -> argument;
+    }
+  }
+
+  /**
+   * Sets every record to a new UUID string.
+   */
+  public static final class Uuid implements ValueGeneratorFactory {
+
+    @Override
+    public String getName() {
+      return "uuid";
+    }
+
+    @Override
+    public Schema getSchema(@Nullable String argument) {
+      generator(argument);
+      return Schema.of(Schema.Type.STRING);
+    }
+
+    @Override
+    public ValueGenerator create(@Nullable String argument, StageContext context) {
+      UUIDGenerator generator = generator(argument);
+      return () -> generator.generate().toString();
+    }
+
+    private static UUIDGenerator generator(@Nullable String argument) {
+      UUIDGenerator generator = argument == null ? UUIDGenerator.SECURE : UUIDGenerator.fromValue(argument);
+      if (generator == null) {
+        throw new IllegalArgumentException(String.format("Invalid UUID generator '%s'. Use one of 'secure', " +
+                                                           "'fast' or 'time-ordered'.", argument));
+      }
+      return generator;
+    }
+  }
+
+  /**
+   * Sets every record to the next value of a {@link SequenceGenerator}. Generators are created in the task, which
+   * gives each one the stripe of its task, see {@link SequenceGenerator#taskStripe()}.
+   */
+  public static final class Sequence implements ValueGeneratorFactory {
+
+    @Override
+    public String getName() {
+      return "sequence";
+    }
+
+    @Override
+    public Schema getSchema(@Nullable String argument) {
+      if (argument != null) {
+        throw new IllegalArgumentException("The sequence generator does not take an argument.");
+      }
+      return Schema.of(Schema.Type.LONG);
+    }
+
+    @Override
+    public ValueGenerator create(@Nullable String argument, StageContext context) {
+      getSchema(argument);
+      SequenceGenerator sequence = new SequenceGenerator(SequenceGenerator.taskStripe());
+      return sequence::next;
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.apache.spark.SparkConf;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Unit tests for the per partition function of the AddFieldCompute plugin.
+ */
+public class AddFieldComputeTest {
+
+  private static final Schema INPUT_SCHEMA = Schema.recordOf("input",
+                                                             Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+                                                             Schema.Field.of("count", Schema.of(Schema.Type.INT)));
+  private static final int PARTITIONS = 4;
+  private static JavaSparkContext sparkContext;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupSpark() {
+    sparkContext = new JavaSparkContext(new SparkConf()
+                                          .setMaster("local[" + PARTITIONS + "]")
+                                          .setAppName(AddFieldComputeTest.class.getSimpleName())
+                                          .set("spark.ui.enabled", "false"));
+  }
+
+  @AfterClass
+  public static void stopSpark() {
+    if (sparkContext != null) {
+      sparkContext.stop();
+    }
+  }
+
+  // spark ships a serialized copy of the function to every task
+  private static AddFieldCompute.AddFieldFunction serializedCopy(AddFieldCompute.AddFieldFunction function)
+    throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(function);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return (AddFieldCompute.AddFieldFunction) in.readObject();
+    }
+  }
+
+  @Test
+  public void testMatchesTransform() throws Exception {
+    AddFieldConfig config = new AddFieldConfig("added", "abc", false);
+    AddField transform = new AddField(config);
+    transform.initialize(new MockTransformContext());
+    AddFieldCompute.AddFieldFunction function = serializedCopy(new AddFieldCompute.AddFieldFunction(config, 1L));
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    for (int i = 0; i < 3; i++) {
+      StructuredRecord record = StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", i).build();
+      transform.transform(record, emitter);
+      StructuredRecord expected = emitter.getEmitted().get(i);
+      StructuredRecord actual = function.call(record);
+      Assert.assertEquals(expected.getSchema(), actual.getSchema());
+      Assert.assertEquals(expected.getSchema().getRecordName(), actual.getSchema().getRecordName());
+      for (Schema.Field field : expected.getSchema().getFields()) {
+        Assert.assertEquals(expected.<Object>get(field.getName()), actual.get(field.getName()));
+      }
+    }
+  }
+
+  @Test
+  public void testSparkMatchesTransform() throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      records.add(StructuredRecord.builder(INPUT_SCHEMA).set("id", String.valueOf(i % 7)).set("count", i).build());
+    }
+    List<AddFieldConfig> configs = new ArrayList<>();
+    configs.add(new AddFieldConfig("added", "abc", false));
+    configs.add(AddFieldConfig.builder().setFieldName("added").setHashFields("id,count").build());
+    configs.add(AddFieldConfig.builder().setFieldName("added").setHashFields("id").setHashBuckets(16).build());
+    File lookupFile = temporaryFolder.newFile("lookup.csv");
+    Files.write(lookupFile.toPath(), Arrays.asList("1,one", "3,three"), StandardCharsets.UTF_8);
+    configs.add(AddFieldConfig.builder().setFieldName("added").setLookupFile(lookupFile.getPath())
+                  .setLookupKeyField("id").build());
+
+    for (AddFieldConfig config : configs) {
+      JavaRDD<StructuredRecord> input = sparkContext.parallelize(records, PARTITIONS);
+      Assert.assertEquals(PARTITIONS, input.partitions().size());
+      // the plugin does not use the execution context
+      List<StructuredRecord> actual = new AddFieldCompute(config).transform(null, input).collect();
+
+      AddField transform = new AddField(config);
+      transform.initialize(new MockTransformContext());
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+      for (StructuredRecord record : records) {
+        transform.transform(record, emitter);
+      }
+      transform.destroy();
+      List<StructuredRecord> expected = emitter.getEmitted();
+
+      Assert.assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        Assert.assertEquals(expected.get(i).getSchema(), actual.get(i).getSchema());
+        for (Schema.Field field : expected.get(i).getSchema().getFields()) {
+          Assert.assertEquals(expected.get(i).<Object>get(field.getName()), actual.get(i).get(field.getName()));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSparkSequenceValuesAreUnique() throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      records.add(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", i).build());
+    }
+    AddFieldConfig config = AddFieldConfig.builder().setFieldName("added").setAsSequence(true).build();
+
+    List<StructuredRecord> output =
+      new AddFieldCompute(config).transform(null, sparkContext.parallelize(records, PARTITIONS)).collect();
+
+    Set<Long> values = new HashSet<>();
+    for (StructuredRecord record : output) {
+      values.add(record.get("added"));
+    }
+    Assert.assertEquals(records.size(), values.size());
+  }
+
+  @Test
+  public void testSparkTransformSequenceValuesAreUnique() {
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      records.add(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", i).build());
+    }
+    AddFieldConfig config = AddFieldConfig.builder().setFieldName("added").setAsSequence(true).build();
+
+    // every partition runs its own instance of the transform, as the tasks of a spark pipeline do
+    List<Long> output = sparkContext.parallelize(records, PARTITIONS).mapPartitions(partition -> {
+      AddField transform = new AddField(config);
+      transform.initialize(new MockTransformContext());
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+      while (partition.hasNext()) {
+        transform.transform(partition.next(), emitter);
+      }
+      List<Long> values = new ArrayList<>();
+      for (StructuredRecord record : emitter.getEmitted()) {
+        long value = record.get("added");
+        Assert.assertEquals(TaskContext.get().partitionId(), (value >>> SequenceGenerator.COUNTER_BITS) &
+          SequenceGenerator.MAX_STRIPE);
+        values.add(value);
+      }
+      return values;
+    }).collect();
+
+    Assert.assertEquals(records.size(), new HashSet<>(output).size());
+  }
+
+  @Test
+  public void testUUIDValue() throws Exception {
+    for (UUIDGenerator generator : UUIDGenerator.values()) {
+      AddFieldConfig config = AddFieldConfig.builder()
+        .setFieldName("added")
+        .setAsUUID(true)
+        .setUUIDGenerator(generator.getValue())
+        .build();
+      AddFieldCompute.AddFieldFunction function = serializedCopy(new AddFieldCompute.AddFieldFunction(config, 1L));
+      Set<String> values = new HashSet<>();
+
+      for (int i = 0; i < 1000; i++) {
+        String value = function.call(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", i).build())
+          .get("added");
+        Assert.assertEquals(value, UUID.fromString(value).toString());
+        values.add(value);
+      }
+      Assert.assertEquals(1000, values.size());
+    }
+  }
+
+  @Test
+  public void testFieldAlreadyExists() throws Exception {
+    AddFieldCompute.AddFieldFunction function =
+      new AddFieldCompute.AddFieldFunction(new AddFieldConfig("id", "abc", false), 1L);
+    try {
+      function.call(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build());
+      Assert.fail("Expected the record to be rejected");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("field 'id' already exists in input", e.getMessage());
+    }
+  }
+}
@@ -88,4 +88,313 @@ public class AddFieldConfigTest {
     config.validate(failureCollector, INPUT_SCHEMA);
     ValidationAssertions.assertValidationFailed(failureCollector, paramName);
   }
+
+  @Test
+  public void testValidateInvalidUUIDGenerator() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setAsUUID(true)
+      .setUUIDGenerator("v1")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.UUID_GENERATOR));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidHashFields() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setHashFields("id, input")
+      .build();
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertEquals(Arrays.asList("id", "input"), config.getHashFields());
+  }
+
+  @Test
+  public void testValidateHashFieldsWithFieldValue() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setHashFields("id")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.HASH_FIELDS));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateHashFieldsNotInInputSchema() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setHashFields("id,missing")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.HASH_FIELDS));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateHashBuckets() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setHashFields("id")
+      .setHashBuckets(16)
+      .build();
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertEquals(16, config.getHashBuckets());
+
+    AddFieldConfig.builder(config).setHashBuckets(0).build().validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.HASH_BUCKETS)));
+
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig.builder(config).setHashBuckets(AddFieldConfig.MAX_HASH_BUCKETS + 1).build()
+      .validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.HASH_BUCKETS)));
+  }
+
+  @Test
+  public void testValidateHashBucketsWithoutHashFields() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setHashBuckets(16)
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Arrays.asList(AddFieldConfig.HASH_BUCKETS, AddFieldConfig.HASH_FIELDS));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateHashFieldsUnsupportedType() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setHashFields("tags")
+      .build();
+    Schema inputSchema = Schema.recordOf("input-record",
+                                         Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.HASH_FIELDS));
+
+    config.validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateSequenceWithFieldValue() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setAsSequence(true)
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.AS_SEQUENCE));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateFieldNameExistsWithCollisionPolicy() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldName("id")
+      .setCollisionPolicy("overwrite")
+      .build();
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+  }
+
+  @Test
+  public void testValidateInvalidCollisionPolicy() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setCollisionPolicy("replace")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.COLLISION_POLICY));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateHashFieldsWithCollisionPolicy() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setHashFields("missing")
+      .setCollisionPolicy("skip")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.HASH_FIELDS));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateLookupWithFieldValue() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setLookupFile("/tmp/lookup.csv")
+      .setLookupKeyField("id")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.LOOKUP_FILE));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateLookupKeyFieldMissing() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setLookupFile("/tmp/lookup.csv")
+      .setLookupKeyField("missing")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.LOOKUP_KEY_FIELD));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateLookupWithoutKeyField() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setLookupFile("/tmp/lookup.csv")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Arrays.asList(AddFieldConfig.LOOKUP_FILE, AddFieldConfig.LOOKUP_KEY_FIELD));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateLookupFileNotCsv() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setLookupFile("/tmp/lookup.avro")
+      .setLookupKeyField("id")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.LOOKUP_FILE));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateTimestampWithFieldValue() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setAsTimestamp(true)
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.AS_TIMESTAMP));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateInvalidTimestampGranularity() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setAsTimestamp(true)
+      .setTimestampGranularity("minute")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.TIMESTAMP_GRANULARITY));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateInvalidTimestampFormat() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG)
+      .setFieldValue(null)
+      .setAsTimestamp(true)
+      .setTimestampFormat("yyyy-MM-dd {")
+      .build();
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.TIMESTAMP_FORMAT));
+
+    config.validate(failureCollector, INPUT_SCHEMA);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateNestedFieldName() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    Schema inputSchema = Schema.recordOf("input-record",
+                                         Schema.Field.of("header", Schema.recordOf(
+                                           "header", Schema.Field.of("id", Schema.of(Schema.Type.STRING)))));
+
+    AddFieldConfig.builder(VALID_CONFIG).setFieldName("header.added").build().validate(failureCollector, inputSchema);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.FIELD_NAME));
+    AddFieldConfig.builder(VALID_CONFIG).setFieldName("header.id").build().validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig.builder(VALID_CONFIG).setFieldName("header.id.added").build().validate(failureCollector,
+                                                                                          inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateErrorSampleInterval() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    AddFieldConfig config = AddFieldConfig.builder(VALID_CONFIG).setErrorSampleInterval(0).build();
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(AddFieldConfig.ERROR_SAMPLE_INTERVAL));
+
+    config.validate(failureCollector, null);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
 }
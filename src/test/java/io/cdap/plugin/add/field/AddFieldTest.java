@@ -0,0 +1,382 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
+import io.cdap.cdap.etl.mock.common.MockStageMetrics;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Unit tests for the AddField transform.
+ */
+public class AddFieldTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final Schema INPUT_SCHEMA = Schema.recordOf("input",
+                                                             Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+                                                             Schema.Field.of("count", Schema.of(Schema.Type.INT)));
+
+  private static AddField createTransform(AddFieldConfig config) throws Exception {
+    return createTransform(config, new MockTransformContext());
+  }
+
+  private static AddField createTransform(AddFieldConfig config, MockTransformContext context) throws Exception {
+    AddField transform = new AddField(config);
+    transform.initialize(context);
+    return transform;
+  }
+
+  @Test
+  public void testConstantValue() throws Exception {
+    AddField transform = createTransform(new AddFieldConfig("added", "abc", false));
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "2").set("count", 2).build(), emitter);
+
+    Assert.assertEquals(2, emitter.getEmitted().size());
+    Assert.assertTrue(emitter.getErrors().isEmpty());
+    StructuredRecord first = emitter.getEmitted().get(0);
+    StructuredRecord second = emitter.getEmitted().get(1);
+    Assert.assertEquals("input.added", first.getSchema().getRecordName());
+    Assert.assertSame(first.getSchema(), second.getSchema());
+    Assert.assertEquals("2", second.get("id"));
+    Assert.assertEquals(2, (int) second.get("count"));
+    Assert.assertEquals("abc", second.get("added"));
+  }
+
+  @Test
+  public void testStructurallyEqualSchemaReusesOutputSchema() throws Exception {
+    AddField transform = createTransform(new AddFieldConfig("added", "abc", false));
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    Schema copy = Schema.parseJson(INPUT_SCHEMA.toString());
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(copy).set("id", "2").set("count", 2).build(), emitter);
+
+    Assert.assertSame(emitter.getEmitted().get(0).getSchema(), emitter.getEmitted().get(1).getSchema());
+  }
+
+  @Test
+  public void testInstancesShareOutputPlans() throws Exception {
+    AddFieldConfig config = new AddFieldConfig("shared", "abc", false);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    StructuredRecord record = StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build();
+
+    // each task of a stage has its own instance, which plans the input schema only if no other instance has yet
+    createTransform(config).transform(record, emitter);
+    createTransform(config).transform(record, emitter);
+
+    Assert.assertSame(emitter.getEmitted().get(0).getSchema(), emitter.getEmitted().get(1).getSchema());
+  }
+
+  @Test
+  public void testUUIDValue() throws Exception {
+    for (UUIDGenerator generator : UUIDGenerator.values()) {
+      AddField transform = createTransform(AddFieldConfig.builder()
+                                             .setFieldName("added")
+                                             .setAsUUID(true)
+                                             .setUUIDGenerator(generator.getValue())
+                                             .build());
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+      transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+      transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "2").set("count", 2).build(), emitter);
+
+      String first = emitter.getEmitted().get(0).get("added");
+      String second = emitter.getEmitted().get(1).get("added");
+      Assert.assertNotEquals(first, second);
+      Assert.assertEquals(first, UUID.fromString(first).toString());
+    }
+  }
+
+  @Test
+  public void testFieldAlreadyExists() throws Exception {
+    AddField transform = createTransform(new AddFieldConfig("id", "abc", false));
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    for (int i = 0; i < 3; i++) {
+      transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", i).build(), emitter);
+    }
+
+    Assert.assertTrue(emitter.getEmitted().isEmpty());
+    Assert.assertEquals(3, emitter.getErrors().size());
+    Assert.assertEquals(400, emitter.getErrors().get(2).getErrorCode());
+    Assert.assertEquals("field 'id' already exists in input", emitter.getErrors().get(2).getErrorMsg());
+    Assert.assertEquals(2, (int) emitter.getErrors().get(2).getInvalidRecord().get("count"));
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    MockTransformContext context = new MockTransformContext();
+    AddFieldConfig config = AddFieldConfig.builder()
+      .setFieldName("id")
+      .setFieldValue("abc")
+      .setMetricsSampleInterval(2)
+      .build();
+    AddField transform = createTransform(config, context);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    Schema otherSchema = Schema.recordOf("other", Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(otherSchema).set("name", "a").build(), emitter);
+    transform.transform(StructuredRecord.builder(otherSchema).set("name", "b").build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "2").set("count", 2).build(), emitter);
+    transform.destroy();
+
+    MockStageMetrics metrics = context.getMockMetrics();
+    Assert.assertEquals(4, metrics.getCount(TransformMetrics.RECORDS));
+    Assert.assertEquals(2, metrics.getCount(TransformMetrics.COLLISION_ERRORS));
+    Assert.assertEquals(2, metrics.getCount(TransformMetrics.CACHE_MISSES));
+    Assert.assertEquals(2, metrics.getCount(TransformMetrics.CACHE_HITS));
+    Assert.assertEquals(2, metrics.getCount(TransformMetrics.SAMPLED_RECORDS));
+  }
+
+  @Test
+  public void testHashValue() throws Exception {
+    AddFieldConfig config = AddFieldConfig.builder().setFieldName("added").setHashFields("id,count").build();
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    createTransform(config).transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(),
+                                      emitter);
+    AddField transform = createTransform(config);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 2).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "11").set("count", 1).build(), emitter);
+
+    String first = emitter.getEmitted().get(0).get("added");
+    Assert.assertEquals(32, first.length());
+    Assert.assertEquals(first, emitter.getEmitted().get(1).get("added"));
+    Assert.assertNotEquals(first, emitter.getEmitted().get(2).get("added"));
+    Assert.assertNotEquals(first, emitter.getEmitted().get(3).get("added"));
+  }
+
+  @Test
+  public void testHashBucketValue() throws Exception {
+    AddFieldConfig hexConfig = AddFieldConfig.builder().setFieldName("added").setHashFields("id,count").build();
+    AddField hexTransform = createTransform(hexConfig);
+    AddField transform = createTransform(AddFieldConfig.builder(hexConfig).setHashBuckets(8).build());
+    MockEmitter<StructuredRecord> hexEmitter = new MockEmitter<>();
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    Set<Integer> buckets = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      StructuredRecord record = StructuredRecord.builder(INPUT_SCHEMA).set("id", "id" + i).set("count", i).build();
+      hexTransform.transform(record, hexEmitter);
+      transform.transform(record, emitter);
+
+      // the bucket is the first 8 bytes of the hash, which are written in little endian order, modulo 8
+      String hex = hexEmitter.getEmitted().get(i).get("added");
+      long h1 = Long.reverseBytes(Long.parseUnsignedLong(hex.substring(0, 16), 16));
+      int bucket = emitter.getEmitted().get(i).get("added");
+      Assert.assertEquals(Math.floorMod(h1, 8L), bucket);
+      buckets.add(bucket);
+    }
+
+    Assert.assertEquals(Schema.of(Schema.Type.INT),
+                        emitter.getEmitted().get(0).getSchema().getField("added").getSchema());
+    Assert.assertEquals(8, buckets.size());
+  }
+
+  @Test
+  public void testSequenceValue() throws Exception {
+    AddField transform = createTransform(AddFieldConfig.builder().setFieldName("added").setAsSequence(true).build());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "2").set("count", 2).build(), emitter);
+
+    StructuredRecord first = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.of(Schema.Type.LONG), first.getSchema().getField("added").getSchema());
+    long firstId = first.get("added");
+    long secondId = emitter.getEmitted().get(1).get("added");
+    Assert.assertTrue(secondId > firstId);
+  }
+
+  @Test
+  public void testCollisionOverwrite() throws Exception {
+    AddField transform = createTransform(AddFieldConfig.builder().setFieldName("id").setFieldValue("abc")
+                                           .setCollisionPolicy("overwrite").build());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.recordOf("input.added",
+                                        Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+                                        Schema.Field.of("count", Schema.of(Schema.Type.INT))),
+                        output.getSchema());
+    Assert.assertEquals("abc", output.get("id"));
+    Assert.assertEquals(1, (int) output.get("count"));
+  }
+
+  @Test
+  public void testCollisionSkip() throws Exception {
+    AddField transform = createTransform(AddFieldConfig.builder().setFieldName("id").setFieldValue("abc")
+                                           .setCollisionPolicy("skip").build());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertTrue(emitter.getErrors().isEmpty());
+    Assert.assertEquals(2, output.getSchema().getFields().size());
+    Assert.assertEquals("1", output.get("id"));
+  }
+
+  @Test
+  public void testCollisionRename() throws Exception {
+    Schema inputSchema = Schema.recordOf("input",
+                                         Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+                                         Schema.Field.of("id_1", Schema.of(Schema.Type.STRING)));
+    AddField transform = createTransform(AddFieldConfig.builder().setFieldName("id").setFieldValue("abc")
+                                           .setCollisionPolicy("rename").build());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(inputSchema).set("id", "1").set("id_1", "2").build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals("id_2", output.getSchema().getFields().get(2).getName());
+    Assert.assertEquals("1", output.get("id"));
+    Assert.assertEquals("2", output.get("id_1"));
+    Assert.assertEquals("abc", output.get("id_2"));
+  }
+
+  @Test
+  public void testLookupValue() throws Exception {
+    File lookupFile = temporaryFolder.newFile("lookup.csv");
+    Files.write(lookupFile.toPath(), Arrays.asList("1,one", "2,two"), StandardCharsets.UTF_8);
+    AddField transform = createTransform(AddFieldConfig.builder()
+                                           .setFieldName("added")
+                                           .setLookupFile(lookupFile.getPath())
+                                           .setLookupKeyField("count")
+                                           .build());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 2).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 3).build(), emitter);
+
+    StructuredRecord first = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.STRING)),
+                        first.getSchema().getField("added").getSchema());
+    Assert.assertEquals("two", first.get("added"));
+    Assert.assertNull(emitter.getEmitted().get(1).get("added"));
+  }
+
+  @Test
+  public void testTimestampValue() throws Exception {
+    AddField transform = createTransform(AddFieldConfig.builder()
+                                           .setFieldName("added")
+                                           .setAsTimestamp(true)
+                                           .setTimestampGranularity("task")
+                                           .build());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    long before = System.currentTimeMillis() * 1000;
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "2").set("count", 2).build(), emitter);
+
+    StructuredRecord first = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS),
+                        first.getSchema().getField("added").getSchema());
+    long timestamp = first.get("added");
+    Assert.assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() * 1000);
+    Assert.assertEquals(timestamp, (long) emitter.getEmitted().get(1).get("added"));
+  }
+
+  @Test
+  public void testFormattedTimestampValue() throws Exception {
+    AddField transform = createTransform(AddFieldConfig.builder()
+                                           .setFieldName("added")
+                                           .setAsTimestamp(true)
+                                           .setTimestampFormat("yyyy")
+                                           .build());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), output.getSchema().getField("added").getSchema());
+    Assert.assertEquals(4, ((String) output.get("added")).length());
+  }
+
+  @Test
+  public void testNestedField() throws Exception {
+    Schema headerSchema = Schema.recordOf("header", Schema.Field.of("source", Schema.of(Schema.Type.STRING)));
+    Schema inputSchema = Schema.recordOf("event",
+                                         Schema.Field.of("header", Schema.nullableOf(headerSchema)),
+                                         Schema.Field.of("count", Schema.of(Schema.Type.INT)));
+    AddField transform = createTransform(new AddFieldConfig("header.id", "abc", false));
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(inputSchema)
+                          .set("header", StructuredRecord.builder(headerSchema).set("source", "crm").build())
+                          .set("count", 1)
+                          .build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.nullableOf(Schema.recordOf("header.added",
+                                                          Schema.Field.of("source", Schema.of(Schema.Type.STRING)),
+                                                          Schema.Field.of("id", Schema.of(Schema.Type.STRING)))),
+                        output.getSchema().getField("header").getSchema());
+    Assert.assertEquals(2, output.getSchema().getFields().size());
+    StructuredRecord header = output.get("header");
+    Assert.assertEquals("crm", header.get("source"));
+    Assert.assertEquals("abc", header.get("id"));
+  }
+
+  @Test
+  public void testErrorSampling() throws Exception {
+    MockTransformContext context = new MockTransformContext();
+    AddFieldConfig config = AddFieldConfig.builder()
+      .setFieldName("id")
+      .setFieldValue("abc")
+      .setErrorSampleInterval(10)
+      .build();
+    AddField transform = createTransform(config, context);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    for (int i = 0; i < 25; i++) {
+      transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", i).build(), emitter);
+    }
+    transform.destroy();
+
+    Assert.assertEquals(3, emitter.getErrors().size());
+    Assert.assertEquals(0, (int) emitter.getErrors().get(0).getInvalidRecord().get("count"));
+    Assert.assertEquals(10, (int) emitter.getErrors().get(1).getInvalidRecord().get("count"));
+    MockStageMetrics metrics = context.getMockMetrics();
+    Assert.assertEquals(25, metrics.getCount(TransformMetrics.COLLISION_ERRORS));
+    Assert.assertEquals(25, metrics.getCount(TransformMetrics.COLLISION_ERRORS_FIELD_PREFIX + "id"));
+    Assert.assertEquals(3, metrics.getCount(TransformMetrics.COLLISION_ERRORS_EMITTED));
+  }
+}
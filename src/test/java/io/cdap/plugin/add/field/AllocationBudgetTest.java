@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Checks that transforming a record does not allocate more than a budget of bytes, measured with the allocation
+ * counter of the current thread, so that changes that add garbage per record fail the build instead of showing up as
+ * longer GC pauses in executors.
+ *
+ * Each budget can be overridden with the system property 'allocation.budget.NAME', in bytes per record. Budgets
+ * are set with headroom over what the transforms allocate today, since the exact numbers depend on the JVM.
+ */
+public class AllocationBudgetTest {
+  private static final int WARMUP_RECORDS = 50000;
+  private static final int MEASURED_RECORDS = 100000;
+  private static final Schema INPUT_SCHEMA = Schema.recordOf("input",
+                                                             Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+                                                             Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+                                                             Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                                             Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)));
+
+  private static com.sun.management.ThreadMXBean threadBean;
+
+  @BeforeClass
+  public static void setupClass() {
+    Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  public void testAddFieldConstant() throws Exception {
+    AddField transform = new AddField(new AddFieldConfig("added", "constant", false));
+    transform.initialize(new MockTransformContext());
+    assertWithinBudget("addField.constant", 600, transform);
+  }
+
+  @Test
+  public void testAddFieldUUID() throws Exception {
+    AddField transform = new AddField(AddFieldConfig.builder()
+                                        .setFieldName("added")
+                                        .setAsUUID(true)
+                                        .setUUIDGenerator("fast")
+                                        .build());
+    transform.initialize(new MockTransformContext());
+    assertWithinBudget("addField.uuid", 1800, transform);
+  }
+
+  @Test
+  public void testAddFieldHashBucket() throws Exception {
+    AddField transform = new AddField(AddFieldConfig.builder()
+                                        .setFieldName("added")
+                                        .setHashFields("id,count,name,score")
+                                        .setHashBuckets(64)
+                                        .build());
+    transform.initialize(new MockTransformContext());
+    assertWithinBudget("addField.hashBucket", 600, transform);
+  }
+
+  @Test
+  public void testMultiFieldAdder() throws Exception {
+    MultiFieldAdder transform = new MultiFieldAdder(new MultiFieldAdderConfig(
+      "a:1,b:2:int,c:3:long,d:true:boolean,e:2020-01-31:date,f:value,g:1.5:double,h:value,i:value,j:value"));
+    transform.initialize(new MockTransformContext());
+    assertWithinBudget("multiFieldAdder.multiField", 1100, transform);
+  }
+
+  private static void assertWithinBudget(String name, long defaultBudget,
+                                         Transform<StructuredRecord, StructuredRecord> transform) throws Exception {
+    long budget = Long.getLong("allocation.budget." + name, defaultBudget);
+    StructuredRecord record = StructuredRecord.builder(INPUT_SCHEMA)
+      .set("id", "1")
+      .set("count", 1)
+      .set("name", "name")
+      .set("score", 0.5d)
+      .build();
+    LastRecordEmitter emitter = new LastRecordEmitter();
+    for (int i = 0; i < WARMUP_RECORDS; i++) {
+      transform.transform(record, emitter);
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_RECORDS; i++) {
+      transform.transform(record, emitter);
+    }
+    long perRecord = (threadBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_RECORDS;
+
+    Assert.assertNotNull(emitter.last);
+    Assert.assertTrue(String.format("Transforming a record with '%s' allocated %d bytes, over the budget of %d.",
+                                    name, perRecord, budget),
+                      perRecord <= budget);
+  }
+
+  /**
+   * Keeps only the last emitted record, so that the emitter does not allocate or retain anything.
+   */
+  private static final class LastRecordEmitter implements Emitter<StructuredRecord> {
+    private StructuredRecord last;
+
+    @Override
+    public void emit(StructuredRecord value) {
+      last = value;
+    }
+
+    @Override
+    public void emitError(InvalidEntry<StructuredRecord> invalidEntry) {
+      throw new AssertionError("Unexpected error record: " + invalidEntry.getErrorMsg());
+    }
+
+    @Override
+    public void emitAlert(Map<String, String> payload) {
+      throw new AssertionError("Unexpected alert: " + payload);
+    }
+  }
+}
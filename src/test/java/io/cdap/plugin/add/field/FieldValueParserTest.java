@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for FieldValueParser.
+ */
+public class FieldValueParserTest {
+
+  private static void assertPair(FieldValueParser.Pair pair, String name, String value, String type) {
+    Assert.assertEquals(name, pair.getName());
+    Assert.assertEquals(value, pair.getValue());
+    Assert.assertEquals(type, pair.getType());
+  }
+
+  private static void assertError(String input, String message) {
+    try {
+      FieldValueParser.parse(input);
+      Assert.fail("Expected parsing to fail");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(message, e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPairs() {
+    List<FieldValueParser.Pair> pairs = FieldValueParser.parse("a:1,b,c:2:long,,d:12:30:string,e:");
+
+    Assert.assertEquals(5, pairs.size());
+    assertPair(pairs.get(0), "a", "1", null);
+    assertPair(pairs.get(1), "b", null, null);
+    assertPair(pairs.get(2), "c", "2", "long");
+    assertPair(pairs.get(3), "d", "12:30", "string");
+    assertPair(pairs.get(4), "e", "", null);
+    Assert.assertEquals(1, pairs.get(0).getPosition());
+    Assert.assertEquals(7, pairs.get(2).getPosition());
+    Assert.assertEquals(9, pairs.get(2).getValuePosition());
+    Assert.assertEquals(11, pairs.get(2).getTypePosition());
+  }
+
+  @Test
+  public void testFieldValuesOnlyTakeKnownTypes() {
+    List<FieldValueParser.Pair> pairs =
+      FieldValueParser.parseFieldValues("t:12:30,u:12:30:string,v:1:LONG,w:a:b:${type},x:1:,y:http://host");
+
+    Assert.assertEquals(6, pairs.size());
+    assertPair(pairs.get(0), "t", "12:30", null);
+    assertPair(pairs.get(1), "u", "12:30", "string");
+    assertPair(pairs.get(2), "v", "1", "LONG");
+    assertPair(pairs.get(3), "w", "a:b", "${type}");
+    Assert.assertTrue(pairs.get(3).isTypeMacro());
+    assertPair(pairs.get(4), "x", "1:", null);
+    assertPair(pairs.get(5), "y", "http://host", null);
+    Assert.assertEquals(3, pairs.get(0).getValuePosition());
+
+    // other properties take whatever follows the last separator
+    assertPair(FieldValueParser.parse("t:12:30").get(0), "t", "12", "30");
+  }
+
+  @Test
+  public void testEscapesAndQuotes() {
+    List<FieldValueParser.Pair> pairs =
+      FieldValueParser.parse("a\\,b:x\\:y,\"c:d\":\"1,2\",e:\"say \\\"hi\\\"\",f:$5,g:\\${x}");
+
+    Assert.assertEquals(5, pairs.size());
+    assertPair(pairs.get(0), "a,b", "x:y", null);
+    assertPair(pairs.get(1), "c:d", "1,2", null);
+    assertPair(pairs.get(2), "e", "say \"hi\"", null);
+    assertPair(pairs.get(3), "f", "$5", null);
+    assertPair(pairs.get(4), "g", "${x}", null);
+    Assert.assertFalse(pairs.get(4).isValueMacro());
+  }
+
+  @Test
+  public void testMacros() {
+    List<FieldValueParser.Pair> pairs =
+      FieldValueParser.parse("${a}:1,b:${time(HH:mm,ss)},c:1:${type},d:x${y${z}}");
+
+    Assert.assertEquals(4, pairs.size());
+    Assert.assertTrue(pairs.get(0).isNameMacro());
+    assertPair(pairs.get(1), "b", "${time(HH:mm,ss)}", null);
+    Assert.assertTrue(pairs.get(1).isValueMacro());
+    Assert.assertFalse(pairs.get(2).isValueMacro());
+    Assert.assertTrue(pairs.get(2).isTypeMacro());
+    assertPair(pairs.get(3), "d", "x${y${z}}", null);
+    Assert.assertTrue(pairs.get(3).isValueMacro());
+    Assert.assertFalse(pairs.get(3).isTypeMacro());
+  }
+
+  @Test
+  public void testErrors() {
+    assertError("a:1,b:\"2", "Quote at character 7 is not closed.");
+    assertError("a:1\\", "Incomplete escape at character 4.");
+    assertError("a:${b", "Macro at character 3 is not closed.");
+  }
+
+  @Test
+  public void testManyFields() {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      input.append(i == 0 ? "" : ",").append("field_").append(i).append(":value_").append(i).append(":string");
+    }
+
+    List<FieldValueParser.Pair> pairs = FieldValueParser.parse(input.toString());
+
+    Assert.assertEquals(10000, pairs.size());
+    assertPair(pairs.get(9999), "field_9999", "value_9999", "string");
+  }
+}
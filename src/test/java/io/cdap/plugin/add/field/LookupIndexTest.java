@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Unit tests for LookupIndex.
+ */
+public class LookupIndexTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File writeSource(String... lines) throws IOException {
+    File source = temporaryFolder.newFile();
+    Files.write(source.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    return source;
+  }
+
+  @Test
+  public void testLookup() throws Exception {
+    File source = writeSource("1,one", "2,two", "", "\"3,x\",\"three, \"\"quoted\"\"\"", "4,", "5,a,b", "ключ,значение");
+    LookupIndex index = LookupIndex.open(source, new File(temporaryFolder.getRoot(), "index"), 30);
+
+    Assert.assertEquals(6, index.size());
+    Assert.assertEquals("one", index.get("1"));
+    Assert.assertEquals("two", index.get("2"));
+    Assert.assertEquals("three, \"quoted\"", index.get("3,x"));
+    Assert.assertEquals("", index.get("4"));
+    Assert.assertEquals("a,b", index.get("5"));
+    Assert.assertEquals("значение", index.get("ключ"));
+    Assert.assertNull(index.get("3"));
+    Assert.assertNull(index.get(""));
+  }
+
+  @Test
+  public void testDuplicateKeepsFirst() throws Exception {
+    File source = writeSource("a,1", "b,2", "a,3");
+    LookupIndex index = LookupIndex.open(source, new File(temporaryFolder.getRoot(), "index"), 30);
+
+    Assert.assertEquals(2, index.size());
+    Assert.assertEquals("1", index.get("a"));
+  }
+
+  @Test
+  public void testManySegments() throws Exception {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      lines.add("key" + i + ",value" + i);
+    }
+    File source = writeSource(lines.toArray(new String[0]));
+    // 64 byte segments, so that the table and entries span many segments and entries are moved to the next one
+    LookupIndex index = LookupIndex.open(source, new File(temporaryFolder.getRoot(), "index"), 6);
+
+    Assert.assertEquals(1000, index.size());
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals("value" + i, index.get("key" + i));
+    }
+    Assert.assertNull(index.get("key1000"));
+  }
+
+  @Test
+  public void testExistingIndexIsReused() throws Exception {
+    File indexFile = new File(temporaryFolder.getRoot(), "index");
+    LookupIndex.open(writeSource("a,1"), indexFile, 30);
+
+    LookupIndex index = LookupIndex.open(writeSource("a,2"), indexFile, 30);
+
+    Assert.assertEquals("1", index.get("a"));
+  }
+
+  @Test
+  public void testSharedWithinJvm() throws Exception {
+    File source = writeSource("a,1");
+
+    Assert.assertSame(LookupIndex.get(source), LookupIndex.get(source));
+  }
+
+  @Test
+  public void testConcurrentCallersShareOneBuild() throws Exception {
+    File source = writeSource("a,1", "b,2");
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<LookupIndex>> futures = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        futures.add(executor.submit(() -> LookupIndex.get(source)));
+      }
+      LookupIndex index = futures.get(0).get();
+      for (Future<LookupIndex> future : futures) {
+        Assert.assertSame(index, future.get());
+      }
+      Assert.assertEquals("2", index.get("b"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReopenedAfterLastRelease() throws Exception {
+    File source = writeSource("a,1");
+    LookupIndex first = LookupIndex.get(source);
+    LookupIndex second = LookupIndex.get(source);
+
+    first.release();
+    Assert.assertSame(first, second);
+    Assert.assertEquals("1", second.get("a"));
+    second.release();
+
+    LookupIndex reopened = LookupIndex.get(source);
+    Assert.assertNotSame(first, reopened);
+    Assert.assertEquals("1", reopened.get("a"));
+    reopened.release();
+  }
+
+  @Test
+  public void testPrivateDirectory() throws Exception {
+    File directory = new File(temporaryFolder.getRoot(), "private");
+    Assert.assertEquals(directory, LookupIndex.privateDirectory(directory));
+    // an existing private directory is reused
+    Assert.assertEquals(directory, LookupIndex.privateDirectory(directory));
+    Path path = directory.toPath();
+    Assume.assumeTrue(Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class));
+    Assert.assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(path));
+
+    Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rwxrwxrwx"));
+    try {
+      LookupIndex.privateDirectory(directory);
+      Assert.fail("Expected a directory that others can write to be rejected.");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("only its owner can access"));
+    }
+
+    File link = new File(temporaryFolder.getRoot(), "link");
+    Files.createSymbolicLink(link.toPath(), temporaryFolder.newFolder().toPath());
+    try {
+      LookupIndex.privateDirectory(link);
+      Assert.fail("Expected a link to be rejected.");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("only its owner can access"));
+    }
+  }
+
+  @Test
+  public void testMissingValue() throws Exception {
+    File source = writeSource("a,1", "b");
+    try {
+      LookupIndex.open(source, new File(temporaryFolder.getRoot(), "index"), 30);
+      Assert.fail("Expected a line without a value to be rejected.");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Line 2 of "));
+    }
+    Assert.assertFalse(new File(temporaryFolder.getRoot(), "index").exists());
+  }
+}
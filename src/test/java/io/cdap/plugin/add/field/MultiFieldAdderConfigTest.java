@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.add.field;
 
+import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.macro.Macros;
 import io.cdap.cdap.api.plugin.PluginProperties;
 import io.cdap.cdap.etl.mock.validation.MockFailureCollector;
@@ -95,6 +96,86 @@ public class MultiFieldAdderConfigTest {
     Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
   }
 
+  @Test
+  public void testTypedFields() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setFieldValue("a:1:long,b:true:boolean,c:x,d:2020-01-01:date,e:1.5:DOUBLE")
+      .build();
+
+    config.validate(failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Map<String, AddedField> fields = config.getAddedFields();
+    Assert.assertEquals(FieldType.LONG, fields.get("a").getType());
+    Assert.assertEquals(1L, fields.get("a").parseValue());
+    Assert.assertEquals(true, fields.get("b").parseValue());
+    Assert.assertEquals(FieldType.STRING, fields.get("c").getType());
+    Assert.assertEquals(18262, fields.get("d").parseValue());
+    Assert.assertEquals(1.5d, fields.get("e").parseValue());
+  }
+
+  @Test
+  public void testUnknownTypeIsPartOfValue() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setFieldValue("a:1:long,b:1:decimal,t:12:30")
+      .build();
+
+    config.validate(failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Map<String, AddedField> fields = config.getAddedFields();
+    Assert.assertEquals(FieldType.LONG, fields.get("a").getType());
+    Assert.assertEquals(FieldType.STRING, fields.get("b").getType());
+    Assert.assertEquals("1:decimal", fields.get("b").parseValue());
+    Assert.assertEquals(FieldType.STRING, fields.get("t").getType());
+    Assert.assertEquals("12:30", fields.get("t").parseValue());
+  }
+
+  @Test
+  public void testValidateInvalidTypedValue() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setFieldValue("a:one:int,b:maybe:boolean")
+      .build();
+    List<List<String>> paramName = Arrays.asList(
+      Collections.singletonList(MultiFieldAdderConfig.FIELD_VALUE),
+      Collections.singletonList(MultiFieldAdderConfig.FIELD_VALUE));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testQuotedAndEscapedValues() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setFieldValue("a:\"x,y\",b:1\\:2,c:$5")
+      .build();
+
+    config.validate(failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Map<String, String> expected = new HashMap<>();
+    expected.put("a", "x,y");
+    expected.put("b", "1:2");
+    expected.put("c", "$5");
+    Assert.assertEquals(expected, config.getFieldValue());
+  }
+
+  @Test
+  public void testValidateUnclosedQuote() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setFieldValue("a:1,b:\"2")
+      .build();
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.FIELD_VALUE));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+    Assert.assertEquals("Quote at character 7 is not closed.",
+                        failureCollector.getValidationFailures().get(0).getMessage());
+  }
+
   @Test
   public void testAllKeysMacro() throws NoSuchFieldException {
     MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
@@ -172,6 +253,206 @@ public class MultiFieldAdderConfigTest {
     Assert.assertTrue(config.getFieldValue().isEmpty());
   }
 
+  @Test
+  public void testValidateInvalidCollisionPolicy() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setCollisionPolicy("replace")
+      .build();
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.COLLISION_POLICY));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testMetadataFieldsOnly() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder()
+      .setMetadataFields("stage:stage,start:logicalStartTime")
+      .build();
+
+    config.validate(failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+    Assert.assertEquals(Arrays.asList(MetadataSource.STAGE, MetadataSource.LOGICAL_START_TIME),
+                        new ArrayList<>(config.getMetadataFields().values()));
+  }
+
+  @Test
+  public void testValidateNoFields() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder().build();
+    List<List<String>> paramName = Collections.singletonList(
+      Arrays.asList(MultiFieldAdderConfig.FIELD_VALUE, MultiFieldAdderConfig.METADATA_FIELDS));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateUnsupportedMetadataSource() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setMetadataFields("run:runId")
+      .build();
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.METADATA_FIELDS));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateMetadataFieldNameConflict() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setMetadataFields("test_2:stage")
+      .build();
+    List<List<String>> paramName = Collections.singletonList(
+      Arrays.asList(MultiFieldAdderConfig.FIELD_VALUE, MultiFieldAdderConfig.METADATA_FIELDS));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidatePaths() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    Schema header = Schema.recordOf("header", Schema.Field.of("source", Schema.of(Schema.Type.STRING)));
+    Schema inputSchema = Schema.recordOf("input",
+                                         Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+                                         Schema.Field.of("header", Schema.nullableOf(header)));
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder()
+      .setFieldValue("header.region:eu")
+      .setMetadataFields("header.namespace:namespace")
+      .build();
+
+    config.validate(failureCollector, inputSchema);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+
+    MultiFieldAdderConfig.builder(config).setGeneratedFields("missing.id:uuid").build()
+      .validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.GENERATED_FIELDS)));
+
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig.builder(config).setFieldValue("id.region:eu").build().validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.FIELD_VALUE)));
+    Assert.assertEquals("Field 'id' does not exist in input or is not a record.",
+                        failureCollector.getValidationFailures().get(0).getMessage());
+
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig.builder(config).setFieldValue("header:none").build().validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Arrays.asList(MultiFieldAdderConfig.FIELD_VALUE, MultiFieldAdderConfig.METADATA_FIELDS)));
+  }
+
+  @Test
+  public void testValidateRules() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    Schema inputSchema = Schema.recordOf("input",
+                                         Schema.Field.of("region", Schema.of(Schema.Type.STRING)),
+                                         Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)));
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder()
+      .setRuleField("zone")
+      .setRuleKeyField("region")
+      .setRules("EU:eu-west,us-*:us")
+      .build();
+
+    config.validate(failureCollector, inputSchema);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+
+    MultiFieldAdderConfig.builder(config).setRuleKeyField("score").build().validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.RULE_KEY_FIELD)));
+
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig.builder(config).setRuleKeyField("missing").build().validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.RULE_KEY_FIELD)));
+
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig.builder(config).setRules("0..10:a,5..:b").build().validate(failureCollector, inputSchema);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.RULES)));
+  }
+
+  @Test
+  public void testValidateRulePropertiesTogether() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setRuleField("zone")
+      .setRules("EU:eu-west")
+      .build();
+    List<List<String>> paramName = Collections.singletonList(
+      Arrays.asList(MultiFieldAdderConfig.RULE_FIELD, MultiFieldAdderConfig.RULE_KEY_FIELD,
+                    MultiFieldAdderConfig.RULES));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateRuleFieldNameConflict() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setRuleField("test_2")
+      .setRuleKeyField("region")
+      .setRules("EU:eu-west")
+      .build();
+    List<List<String>> paramName = Collections.singletonList(
+      Arrays.asList(MultiFieldAdderConfig.FIELD_VALUE, MultiFieldAdderConfig.RULE_FIELD));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateErrorSampleInterval() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG).setErrorSampleInterval(-1).build();
+    List<List<String>> paramName = Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.ERROR_SAMPLE_INTERVAL));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
+  @Test
+  public void testValidateGeneratedFields() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder()
+      .setGeneratedFields("uid:uuid,seq:sequence")
+      .build();
+
+    config.validate(failureCollector);
+    Assert.assertTrue(failureCollector.getValidationFailures().isEmpty());
+
+    MultiFieldAdderConfig.builder(config).setGeneratedFields("uid:random").build().validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.GENERATED_FIELDS)));
+
+    failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig.builder(config).setGeneratedFields("uid:uuid:random").build().validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, Collections.singletonList(
+      Collections.singletonList(MultiFieldAdderConfig.GENERATED_FIELDS)));
+  }
+
+  @Test
+  public void testValidateGeneratedFieldNameConflict() {
+    MockFailureCollector failureCollector = new MockFailureCollector(MOCK_STAGE);
+    MultiFieldAdderConfig config = MultiFieldAdderConfig.builder(VALID_CONFIG)
+      .setGeneratedFields("test_2:uuid")
+      .build();
+    List<List<String>> paramName = Collections.singletonList(
+      Arrays.asList(MultiFieldAdderConfig.GENERATED_FIELDS, MultiFieldAdderConfig.FIELD_VALUE));
+
+    config.validate(failureCollector);
+    ValidationAssertions.assertValidationFailed(failureCollector, paramName);
+  }
+
   private static MultiFieldAdderConfig getMacroMultiFieldAdderConfig(String macro_value) throws NoSuchFieldException {
     MultiFieldAdderConfig config = MultiFieldAdderConfig.builder().build();
 
@@ -0,0 +1,283 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the MultiFieldAdder transform.
+ */
+public class MultiFieldAdderTest {
+
+  private static final Schema INPUT_SCHEMA = Schema.recordOf("input",
+                                                             Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+                                                             Schema.Field.of("count", Schema.of(Schema.Type.INT)));
+
+  private static MultiFieldAdder createTransform(String fieldValue) throws Exception {
+    MultiFieldAdder transform = new MultiFieldAdder(new MultiFieldAdderConfig(fieldValue));
+    transform.initialize(new MockTransformContext());
+    return transform;
+  }
+
+  private static MultiFieldAdder createTransform(String fieldValue, String collisionPolicy) throws Exception {
+    MultiFieldAdder transform = new MultiFieldAdder(MultiFieldAdderConfig.builder()
+                                                      .setFieldValue(fieldValue)
+                                                      .setCollisionPolicy(collisionPolicy)
+                                                      .build());
+    transform.initialize(new MockTransformContext());
+    return transform;
+  }
+
+  @Test
+  public void testAddFields() throws Exception {
+    MultiFieldAdder transform = createTransform("b:2,a:1");
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "2").set("count", 2).build(), emitter);
+
+    Schema expectedSchema = Schema.recordOf(
+      "input.added",
+      Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("a", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Assert.assertTrue(emitter.getErrors().isEmpty());
+    Assert.assertEquals(2, emitter.getEmitted().size());
+    StructuredRecord second = emitter.getEmitted().get(1);
+    Assert.assertEquals(expectedSchema, second.getSchema());
+    Assert.assertSame(emitter.getEmitted().get(0).getSchema(), second.getSchema());
+    Assert.assertEquals("2", second.get("id"));
+    Assert.assertEquals("1", second.get("a"));
+    Assert.assertEquals("2", second.get("b"));
+  }
+
+  @Test
+  public void testFieldAlreadyExists() throws Exception {
+    MultiFieldAdder transform = createTransform("a:1,count:2");
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "2").set("count", 2).build(), emitter);
+
+    Assert.assertTrue(emitter.getEmitted().isEmpty());
+    Assert.assertEquals(2, emitter.getErrors().size());
+    Assert.assertEquals(400, emitter.getErrors().get(1).getErrorCode());
+    Assert.assertEquals("Field 'count' already exists in input", emitter.getErrors().get(1).getErrorMsg());
+    Assert.assertEquals("2", emitter.getErrors().get(1).getInvalidRecord().get("id"));
+  }
+
+  @Test
+  public void testTypedFields() throws Exception {
+    MultiFieldAdder transform = createTransform("flag:true:boolean,count2:42:long,ts:2020-01-01T00:00:01.5Z:timestamp");
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.LONG)),
+                        output.getSchema().getField("count2").getSchema());
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)),
+                        output.getSchema().getField("ts").getSchema());
+    Assert.assertEquals(true, output.get("flag"));
+    Assert.assertEquals(42L, (long) output.get("count2"));
+    Assert.assertEquals(1577836801500000L, (long) output.get("ts"));
+  }
+
+  @Test
+  public void testCollisionPolicies() throws Exception {
+    StructuredRecord input = StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build();
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    createTransform("a:x,id:2", "overwrite").transform(input, emitter);
+    StructuredRecord overwritten = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.recordOf("input.added",
+                                        Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                        Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+                                        Schema.Field.of("a", Schema.nullableOf(Schema.of(Schema.Type.STRING)))),
+                        overwritten.getSchema());
+    Assert.assertEquals("2", overwritten.get("id"));
+
+    emitter = new MockEmitter<>();
+    createTransform("a:x,id:2", "skip").transform(input, emitter);
+    StructuredRecord skipped = emitter.getEmitted().get(0);
+    Assert.assertEquals(3, skipped.getSchema().getFields().size());
+    Assert.assertEquals("1", skipped.get("id"));
+    Assert.assertEquals("x", skipped.get("a"));
+
+    emitter = new MockEmitter<>();
+    createTransform("a:x,id:2", "rename").transform(input, emitter);
+    StructuredRecord renamed = emitter.getEmitted().get(0);
+    Assert.assertEquals("1", renamed.get("id"));
+    Assert.assertEquals("2", renamed.get("id_1"));
+    Assert.assertEquals("x", renamed.get("a"));
+  }
+
+  @Test
+  public void testMetadataFields() throws Exception {
+    MultiFieldAdder transform = new MultiFieldAdder(MultiFieldAdderConfig.builder()
+                                                      .setFieldValue("a:1")
+                                                      .setMetadataFields("stage:stage,pipeline:pipeline," +
+                                                                           "namespace:namespace,start:logicalStartTime")
+                                                      .build());
+    MockTransformContext context = new MockTransformContext("adder");
+    transform.initialize(context);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", 1).build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.recordOf(
+      "input.added",
+      Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("a", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("stage", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("pipeline", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("namespace", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("start", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)))),
+                        output.getSchema());
+    Assert.assertEquals("1", output.get("a"));
+    Assert.assertEquals("adder", output.get("stage"));
+    Assert.assertEquals(context.getPipelineName(), output.get("pipeline"));
+    Assert.assertEquals(context.getNamespace(), output.get("namespace"));
+    Assert.assertEquals(context.getLogicalStartTime() * 1000, (long) output.get("start"));
+  }
+
+  @Test
+  public void testNestedFields() throws Exception {
+    Schema metaSchema = Schema.recordOf("meta", Schema.Field.of("version", Schema.of(Schema.Type.INT)));
+    Schema headerSchema = Schema.recordOf("header",
+                                          Schema.Field.of("meta", Schema.nullableOf(metaSchema)),
+                                          Schema.Field.of("source", Schema.of(Schema.Type.STRING)));
+    Schema otherSchema = Schema.recordOf("other", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema inputSchema = Schema.recordOf("event",
+                                         Schema.Field.of("header", headerSchema),
+                                         Schema.Field.of("other", otherSchema));
+    MultiFieldAdder transform = createTransform("header.meta.batch:42:long,header.region:eu,top:1");
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    StructuredRecord other = StructuredRecord.builder(otherSchema).set("x", 1).build();
+    StructuredRecord meta = StructuredRecord.builder(metaSchema).set("version", 3).build();
+    StructuredRecord header = StructuredRecord.builder(headerSchema).set("meta", meta).set("source", "crm").build();
+
+    transform.transform(StructuredRecord.builder(inputSchema).set("header", header).set("other", other).build(),
+                        emitter);
+    header = StructuredRecord.builder(headerSchema).set("source", "web").build();
+    transform.transform(StructuredRecord.builder(inputSchema).set("header", header).set("other", other).build(),
+                        emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Schema outputHeaderSchema = output.getSchema().getField("header").getSchema();
+    Assert.assertEquals(Schema.recordOf(
+      "header.added",
+      Schema.Field.of("meta", Schema.nullableOf(Schema.recordOf(
+        "meta.added",
+        Schema.Field.of("version", Schema.of(Schema.Type.INT)),
+        Schema.Field.of("batch", Schema.nullableOf(Schema.of(Schema.Type.LONG)))))),
+      Schema.Field.of("source", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("region", Schema.nullableOf(Schema.of(Schema.Type.STRING)))), outputHeaderSchema);
+    Assert.assertSame(otherSchema, output.getSchema().getField("other").getSchema());
+    Assert.assertEquals("1", output.get("top"));
+    StructuredRecord outputHeader = output.get("header");
+    Assert.assertEquals("eu", outputHeader.get("region"));
+    Assert.assertEquals("crm", outputHeader.get("source"));
+    StructuredRecord outputMeta = outputHeader.get("meta");
+    Assert.assertEquals(3, (int) outputMeta.get("version"));
+    Assert.assertEquals(42L, (long) outputMeta.get("batch"));
+    // records that are not on the path of an added field are not copied
+    Assert.assertSame(other, output.get("other"));
+
+    // fields are not added to nested records that are null
+    StructuredRecord second = emitter.getEmitted().get(1);
+    Assert.assertNull(((StructuredRecord) second.get("header")).get("meta"));
+    Assert.assertEquals("eu", ((StructuredRecord) second.get("header")).get("region"));
+  }
+
+  @Test
+  public void testNestedFieldAlreadyExists() throws Exception {
+    Schema headerSchema = Schema.recordOf("header", Schema.Field.of("source", Schema.of(Schema.Type.STRING)));
+    Schema inputSchema = Schema.recordOf("event", Schema.Field.of("header", headerSchema));
+    StructuredRecord input = StructuredRecord.builder(inputSchema)
+      .set("header", StructuredRecord.builder(headerSchema).set("source", "crm").build())
+      .build();
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    createTransform("header.source:web").transform(input, emitter);
+    Assert.assertEquals("Field 'header.source' already exists in input", emitter.getErrors().get(0).getErrorMsg());
+
+    emitter = new MockEmitter<>();
+    createTransform("header.source:web", "overwrite").transform(input, emitter);
+    Assert.assertEquals("web", ((StructuredRecord) emitter.getEmitted().get(0).get("header")).get("source"));
+  }
+
+  @Test
+  public void testRuleField() throws Exception {
+    MultiFieldAdder transform = new MultiFieldAdder(MultiFieldAdderConfig.builder()
+                                                      .setFieldValue("a:1")
+                                                      .setRuleField("size")
+                                                      .setRuleKeyField("count")
+                                                      .setRules("0..10:small,10..:large,42:answer")
+                                                      .setRuleDefault("unknown")
+                                                      .build());
+    transform.initialize(new MockTransformContext());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    for (int count : new int[] {3, 42, 50, -1}) {
+      transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", count).build(),
+                          emitter);
+    }
+
+    StructuredRecord first = emitter.getEmitted().get(0);
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.STRING)),
+                        first.getSchema().getField("size").getSchema());
+    Assert.assertEquals("1", first.get("a"));
+    Assert.assertEquals("small", first.get("size"));
+    Assert.assertEquals("answer", emitter.getEmitted().get(1).get("size"));
+    Assert.assertEquals("large", emitter.getEmitted().get(2).get("size"));
+    Assert.assertEquals("unknown", emitter.getEmitted().get(3).get("size"));
+  }
+
+  @Test
+  public void testGeneratedFields() throws Exception {
+    MultiFieldAdder transform = new MultiFieldAdder(MultiFieldAdderConfig.builder()
+                                                      .setFieldValue("a:1")
+                                                      .setGeneratedFields("uid:uuid:fast,seq:sequence," +
+                                                                            "source:constant:web")
+                                                      .build());
+    transform.initialize(new MockTransformContext());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    for (int i = 0; i < 2; i++) {
+      transform.transform(StructuredRecord.builder(INPUT_SCHEMA).set("id", "1").set("count", i).build(), emitter);
+    }
+
+    StructuredRecord first = emitter.getEmitted().get(0);
+    StructuredRecord second = emitter.getEmitted().get(1);
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), first.getSchema().getField("uid").getSchema());
+    Assert.assertEquals(Schema.of(Schema.Type.LONG), first.getSchema().getField("seq").getSchema());
+    Assert.assertEquals("1", first.get("a"));
+    Assert.assertNotEquals(first.<String>get("uid"), second.<String>get("uid"));
+    Assert.assertTrue(first.<Long>get("seq") < second.<Long>get("seq"));
+    Assert.assertEquals("web", first.get("source"));
+    Assert.assertEquals("web", second.get("source"));
+  }
+}
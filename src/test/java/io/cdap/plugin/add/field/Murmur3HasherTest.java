@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Unit tests for Murmur3Hasher, checked against the Guava implementation.
+ */
+public class Murmur3HasherTest {
+
+  private static byte[] hash(Murmur3Hasher hasher) {
+    hasher.finish();
+    return ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+      .putLong(hasher.getH1())
+      .putLong(hasher.getH2())
+      .array();
+  }
+
+  @Test
+  public void testBytes() {
+    Random random = new Random(0);
+    Murmur3Hasher hasher = new Murmur3Hasher();
+    for (int length = 0; length < 100; length++) {
+      byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      hasher.reset();
+      hasher.putBytes(bytes);
+      HashCode expected = Hashing.murmur3_128().hashBytes(bytes);
+      Assert.assertArrayEquals(expected.asBytes(), hash(hasher));
+    }
+  }
+
+  @Test
+  public void testMixedPuts() {
+    Murmur3Hasher hasher = new Murmur3Hasher();
+    // starts every put at each offset within a block, so both aligned and unaligned paths are used
+    for (int offset = 0; offset < 16; offset++) {
+      ByteBuffer expected = ByteBuffer.allocate(offset + 36).order(ByteOrder.LITTLE_ENDIAN);
+      hasher.reset();
+      for (int i = 0; i < offset; i++) {
+        expected.put((byte) i);
+        hasher.putByte(i);
+      }
+      expected.putInt(0x12345678).putLong(0x1122334455667788L).putChar('€').putLong(-1L);
+      for (char c : "añb€cd\uffff".toCharArray()) {
+        expected.putChar(c);
+      }
+      hasher.putInt(0x12345678);
+      hasher.putLong(0x1122334455667788L);
+      hasher.putChar('€');
+      hasher.putLong(-1L);
+      hasher.putChars("añb€cd\uffff");
+
+      Assert.assertArrayEquals(Hashing.murmur3_128().hashBytes(expected.array()).asBytes(), hash(hasher));
+    }
+  }
+
+  @Test
+  public void testByteBufferPositionIsUnchanged() {
+    ByteBuffer buffer = ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5});
+    buffer.position(1);
+    Murmur3Hasher hasher = new Murmur3Hasher();
+    hasher.putBytes(buffer);
+
+    Assert.assertEquals(1, buffer.position());
+    Assert.assertArrayEquals(Hashing.murmur3_128().hashBytes(new byte[] {2, 3, 4, 5}).asBytes(), hash(hasher));
+  }
+}
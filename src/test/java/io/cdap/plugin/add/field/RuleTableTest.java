@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for RuleTable.
+ */
+public class RuleTableTest {
+
+  @Test
+  public void testExactMatches() {
+    RuleTable rules = RuleTable.compile("EU:eu-west,US:us-east,\"a,b\":quoted", "other");
+
+    Assert.assertEquals("eu-west", rules.get("EU"));
+    Assert.assertEquals("us-east", rules.get("US"));
+    Assert.assertEquals("quoted", rules.get("a,b"));
+    Assert.assertEquals("other", rules.get("eu"));
+    Assert.assertEquals("other", rules.get(null));
+    Assert.assertEquals("other", rules.get(1.5d));
+  }
+
+  @Test
+  public void testLongestPrefixWins() {
+    RuleTable rules = RuleTable.compile("eu-*:eu,eu-west-*:eu-west,eu-west-1:exact,b*:b,bc*:bc,bd*:bd,*:any", null);
+
+    Assert.assertEquals("exact", rules.get("eu-west-1"));
+    Assert.assertEquals("eu-west", rules.get("eu-west-2"));
+    Assert.assertEquals("eu", rules.get("eu-north-1"));
+    Assert.assertEquals("eu", rules.get("eu-"));
+    Assert.assertEquals("bc", rules.get("bcz"));
+    // sorts after 'bd' and 'bc', which are not prefixes of it, but 'b' is
+    Assert.assertEquals("b", rules.get("bz"));
+    Assert.assertEquals("b", rules.get("be"));
+    Assert.assertEquals("any", rules.get("us-east"));
+    Assert.assertEquals("any", rules.get(""));
+    // prefixes only match strings
+    Assert.assertNull(rules.get(5));
+  }
+
+  @Test
+  public void testRanges() {
+    RuleTable rules = RuleTable.compile("..0:negative,0..10:small,10..100:medium,15:fifteen,1000..:large,500:500",
+                                        "none");
+
+    Assert.assertEquals("negative", rules.get(Long.MIN_VALUE));
+    Assert.assertEquals("negative", rules.get(-1));
+    Assert.assertEquals("small", rules.get(0));
+    Assert.assertEquals("small", rules.get(9L));
+    Assert.assertEquals("medium", rules.get(10));
+    Assert.assertEquals("medium", rules.get(14));
+    Assert.assertEquals("fifteen", rules.get(15));
+    Assert.assertEquals("medium", rules.get(16));
+    Assert.assertEquals("none", rules.get(100));
+    Assert.assertEquals("500", rules.get(500L));
+    Assert.assertEquals("none", rules.get(501));
+    Assert.assertEquals("large", rules.get(1000));
+    Assert.assertEquals("large", rules.get(Long.MAX_VALUE));
+    // exact numbers also match strings, but ranges do not
+    Assert.assertEquals("fifteen", rules.get("15"));
+    Assert.assertEquals("none", rules.get("5"));
+  }
+
+  @Test
+  public void testInvalidRules() {
+    assertInvalid("a:1,a:2", "Rule 'a' at character 5 is specified multiple times.");
+    assertInvalid("10:1,010:2", "Rule '010' at character 6 is specified multiple times.");
+    assertInvalid("a*:1,a*:2", "Rule 'a*' at character 6 is specified multiple times.");
+    assertInvalid("0..10:a,5..20:b", "Range '5..20' at character 9 overlaps range '0..10'.");
+    assertInvalid("0..10:a,0..20:b", "Range '0..20' at character 9 overlaps range '0..10'.");
+    assertInvalid("0..:a,5..20:b", "Range '5..20' at character 7 overlaps range '0..'.");
+    assertInvalid("a..b:1", "Range 'a..b' at character 1 must be bounded by whole numbers.");
+    assertInvalid("10..10:1", "Range '10..10' at character 1 is empty.");
+    assertInvalid("a", "Rule 'a' at character 1 must be specified as 'match:value'.");
+    assertInvalid("a:b:c", "Rule 'a' at character 1 must be specified as 'match:value'.");
+  }
+
+  private static void assertInvalid(String rules, String message) {
+    try {
+      RuleTable.compile(rules, null);
+      Assert.fail("Expected rules to be invalid: " + rules);
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(message, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.artifact.ArtifactSummary;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.table.Table;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.datapipeline.DataPipelineApp;
+import io.cdap.cdap.datapipeline.SmartWorkflow;
+import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.mock.batch.MockSink;
+import io.cdap.cdap.etl.mock.batch.MockSource;
+import io.cdap.cdap.etl.mock.test.HydratorTestBase;
+import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
+import io.cdap.cdap.etl.proto.v2.ETLPlugin;
+import io.cdap.cdap.etl.proto.v2.ETLStage;
+import io.cdap.cdap.proto.ProgramRunStatus;
+import io.cdap.cdap.proto.artifact.AppRequest;
+import io.cdap.cdap.proto.id.ArtifactId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.test.ApplicationManager;
+import io.cdap.cdap.test.DataSetManager;
+import io.cdap.cdap.test.TestConfiguration;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Runs AddField and MultiFieldAdder pipelines over synthetic records in the in-memory CDAP and reports records/sec,
+ * GC time and peak heap for each, next to a pipeline without a transform that shows the cost of the source and sink
+ * alone. The results are logged and written to target/scale-results.txt. It is not part of the regular build, and
+ * runs with the 'scale' profile:
+ *
+ * <pre>
+ *   mvn -Pscale test -Dscale.records=10000000 -Dscale.widths=10,100
+ * </pre>
+ *
+ * 'scale.records' is the number of input records, up to 10 million, and 'scale.widths' a comma separated list of
+ * numbers of string fields in the input. Times are measured from starting the workflow until it completes, so they
+ * include a few seconds of startup that only become small next to the processing time with large inputs. GC time
+ * and peak heap are for the whole JVM, which the in-memory CDAP shares with the pipelines.
+ */
+public class ScaleTestRun extends HydratorTestBase {
+  private static final Logger LOG = LoggerFactory.getLogger(ScaleTestRun.class);
+  private static final ArtifactSummary APP_ARTIFACT = new ArtifactSummary("data-pipeline", "1.0.0");
+  private static final int MAX_RECORDS = 10000000;
+  private static final int BATCH_SIZE = 10000;
+  private static final int RECORDS = Integer.getInteger("scale.records", 100000);
+  private static final String WIDTHS = System.getProperty("scale.widths", "10,100");
+
+  @ClassRule
+  public static final TestConfiguration CONFIG = new TestConfiguration("explore.enabled", false);
+
+  @BeforeClass
+  public static void setupTestClass() throws Exception {
+    ArtifactId parentArtifact = NamespaceId.DEFAULT.artifact(APP_ARTIFACT.getName(), APP_ARTIFACT.getVersion());
+    setupBatchArtifacts(parentArtifact, DataPipelineApp.class);
+    addPluginArtifact(NamespaceId.DEFAULT.artifact("example-plugins", "1.0.0"),
+                      parentArtifact, AddField.class, MultiFieldAdder.class);
+  }
+
+  @Test
+  public void testScale() throws Exception {
+    Assert.assertTrue(String.format("scale.records must be between 1 and %d.", MAX_RECORDS),
+                      RECORDS > 0 && RECORDS <= MAX_RECORDS);
+    List<String> results = new ArrayList<>();
+    results.add(String.format("%-16s %6s %10s %12s %10s %10s", "transform", "width", "records", "records/sec",
+                              "gc ms", "peak MB"));
+    for (String width : WIDTHS.split(",")) {
+      Schema schema = schema(Integer.parseInt(width.trim()));
+      String inputName = "scaleInput" + schema.getFields().size();
+      // the input dataset is created when the first pipeline that reads it is deployed
+      Map<String, ApplicationManager> pipelines = new LinkedHashMap<>();
+      pipelines.put("none", deploy("none", schema, inputName, null));
+      pipelines.put(AddField.NAME, deploy(AddField.NAME, schema, inputName,
+                                          ImmutableMap.of("fieldName", "added", "fieldValue", "constant")));
+      pipelines.put(MultiFieldAdder.NAME, deploy(MultiFieldAdder.NAME, schema, inputName,
+                                                 ImmutableMap.of("fieldValue", "a:1,b:2:int,c:3:long,d:value")));
+      writeInput(schema, inputName);
+      for (Map.Entry<String, ApplicationManager> pipeline : pipelines.entrySet()) {
+        results.add(run(pipeline.getKey(), schema, pipeline.getValue()));
+      }
+    }
+
+    File resultsFile = new File("target", "scale-results.txt");
+    Files.write(resultsFile.toPath(), results, StandardCharsets.UTF_8);
+    LOG.info("Scale test results, also written to {}:{}{}", resultsFile.getAbsolutePath(), System.lineSeparator(),
+             String.join(System.lineSeparator(), results));
+  }
+
+  private void writeInput(Schema schema, String inputName) throws Exception {
+    DataSetManager<Table> inputManager = getDataset(inputName);
+    List<StructuredRecord> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < RECORDS; i++) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (Schema.Field field : schema.getFields()) {
+        builder.set(field.getName(), field.getName());
+      }
+      batch.add(builder.set("field_0", Integer.toString(i)).build());
+      if (batch.size() == BATCH_SIZE || i == RECORDS - 1) {
+        MockSource.writeInput(inputManager, batch);
+        batch.clear();
+      }
+    }
+  }
+
+  private ApplicationManager deploy(String transform, Schema schema, String inputName,
+                                    @Nullable Map<String, String> properties) throws Exception {
+    String name = String.format("scale%s%d", transform, schema.getFields().size());
+    ETLStage source = new ETLStage("source", MockSource.getPlugin(inputName, schema));
+    ETLStage sink = new ETLStage("sink", MockSink.getPlugin(name + "Output"));
+    // the pipelines are only started by the test, so they have no schedule
+    ETLBatchConfig.Builder builder = ETLBatchConfig.builder()
+      .addStage(source)
+      .addStage(sink);
+    if (properties == null) {
+      builder.addConnection(source.getName(), sink.getName());
+    } else {
+      ETLStage stage = new ETLStage("transform", new ETLPlugin(transform, Transform.PLUGIN_TYPE, properties, null));
+      builder.addStage(stage)
+        .addConnection(source.getName(), stage.getName())
+        .addConnection(stage.getName(), sink.getName());
+    }
+
+    return deployApplication(NamespaceId.DEFAULT.app(name), new AppRequest<>(APP_ARTIFACT, builder.build()));
+  }
+
+  private String run(String transform, Schema schema, ApplicationManager appManager) throws Exception {
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+    long gcMillis = gcMillis();
+    long start = System.nanoTime();
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 1, TimeUnit.HOURS);
+    long nanos = System.nanoTime() - start;
+    gcMillis = gcMillis() - gcMillis;
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peakHeap += pool.getPeakUsage().getUsed();
+      }
+    }
+
+    // every record must have reached the sink for the numbers to mean anything
+    Map<String, String> tags = ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.DEFAULT.getNamespace(),
+                                               Constants.Metrics.Tag.APP, appManager.getInfo().getName());
+    getMetricsManager().waitForTotalMetricCount(tags, "user.sink.records.in", RECORDS, 1, TimeUnit.MINUTES);
+
+    return String.format("%-16s %6d %10d %12.0f %10d %10d", transform, schema.getFields().size(), RECORDS,
+                         RECORDS / (nanos / 1e9), gcMillis, peakHeap >> 20);
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, collector.getCollectionTime());
+    }
+    return millis;
+  }
+
+  // returns a schema of string fields named 'field_0' to 'field_N'
+  private static Schema schema(int width) {
+    Schema.Field[] fields = new Schema.Field[width];
+    for (int i = 0; i < width; i++) {
+      fields[i] = Schema.Field.of("field_" + i, Schema.of(Schema.Type.STRING));
+    }
+    return Schema.recordOf("input", fields);
+  }
+}
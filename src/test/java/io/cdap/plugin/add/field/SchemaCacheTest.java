@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for SchemaCache.
+ */
+public class SchemaCacheTest {
+
+  private static Schema schema(int fields) {
+    Schema.Field[] schemaFields = new Schema.Field[fields];
+    for (int i = 0; i < fields; i++) {
+      schemaFields[i] = Schema.Field.of("f" + i, Schema.of(Schema.Type.STRING));
+    }
+    return Schema.recordOf("rec", schemaFields);
+  }
+
+  @Test
+  public void testLoadsOncePerSchema() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    SchemaCache<Integer> cache = new SchemaCache<>(schema -> loads.incrementAndGet());
+
+    Schema schema = schema(3);
+    Assert.assertEquals(1, (int) cache.get(schema));
+    Assert.assertEquals(1, (int) cache.get(schema));
+    Assert.assertEquals(1, (int) cache.get(Schema.parseJson(schema.toString())));
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testBounded() {
+    AtomicInteger loads = new AtomicInteger();
+    SchemaCache<Integer> cache = new SchemaCache<>(2, schema -> loads.incrementAndGet());
+
+    cache.get(schema(1));
+    cache.get(schema(2));
+    cache.get(schema(3));
+    Assert.assertEquals(2, cache.size());
+    // the first schema was evicted, so it is loaded again
+    cache.get(schema(1));
+    Assert.assertEquals(4, loads.get());
+  }
+
+  @Test
+  public void testRecordNameIsPartOfKey() {
+    SchemaCache<String> cache = new SchemaCache<>(Schema::getRecordName);
+
+    Schema schema = schema(2);
+    Assert.assertEquals("rec", cache.get(schema));
+    Assert.assertEquals("renamed", cache.get(Schema.recordOf("renamed", schema.getFields())));
+  }
+}
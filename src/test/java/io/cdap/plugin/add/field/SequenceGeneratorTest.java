@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unit tests for SequenceGenerator.
+ */
+public class SequenceGeneratorTest {
+  private static final int THREADS = 8;
+  private static final int TASKS = 1024;
+  private static final int IDS_PER_TASK = 2000;
+
+  @Test
+  public void testLayout() {
+    long millis = SequenceGenerator.EPOCH_MILLIS + 123456789L;
+    SequenceGenerator generator = new SequenceGenerator(42, () -> millis);
+
+    long first = generator.next();
+    long second = generator.next();
+
+    Assert.assertEquals(123456789L, first >>> (SequenceGenerator.STRIPE_BITS + SequenceGenerator.COUNTER_BITS));
+    Assert.assertEquals(42, (first >>> SequenceGenerator.COUNTER_BITS) & SequenceGenerator.MAX_STRIPE);
+    Assert.assertEquals(first + 1, second);
+  }
+
+  @Test
+  public void testIncreasingWhenCounterRunsOutOrClockGoesBack() {
+    AtomicLong clock = new AtomicLong(SequenceGenerator.EPOCH_MILLIS + 1000);
+    SequenceGenerator generator = new SequenceGenerator(SequenceGenerator.MAX_STRIPE, clock::get);
+
+    long previous = generator.next();
+    for (int i = 0; i < 5000; i++) {
+      if (i == 2500) {
+        clock.addAndGet(-500);
+      }
+      long next = generator.next();
+      Assert.assertTrue(next > previous);
+      previous = next;
+    }
+  }
+
+  @Test
+  public void testUniqueAcrossParallelTasks() throws Exception {
+    // every task generates its IDs in the same millisecond, which is the worst case for the counter
+    long millis = System.currentTimeMillis();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<long[]>> futures = new ArrayList<>();
+      for (int task = 0; task < TASKS; task++) {
+        futures.add(executor.submit(() -> {
+          SequenceGenerator generator = new SequenceGenerator(SequenceGenerator.taskStripe(), () -> millis);
+          long[] ids = new long[IDS_PER_TASK];
+          for (int i = 0; i < ids.length; i++) {
+            ids[i] = generator.next();
+          }
+          return ids;
+        }));
+      }
+
+      long[] all = new long[TASKS * IDS_PER_TASK];
+      for (int task = 0; task < TASKS; task++) {
+        System.arraycopy(futures.get(task).get(), 0, all, task * IDS_PER_TASK, IDS_PER_TASK);
+      }
+      Arrays.sort(all);
+      for (int i = 1; i < all.length; i++) {
+        Assert.assertNotEquals(all[i - 1], all[i]);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testIndependentProcessesShareStripesAtTheDocumentedRate() {
+    // every trial starts the stripe counters of several processes at independent random points, as separate
+    // executors do, and checks whether any stripe is handed out twice
+    Random random = new Random(42);
+    int[][] cases = {{10, 1}, {10, 4}, {50, 1}};
+    for (int[] processesAndTasks : cases) {
+      int processes = processesAndTasks[0];
+      int tasks = processesAndTasks[1];
+      int trials = 20000;
+      int shared = 0;
+      for (int trial = 0; trial < trials; trial++) {
+        Set<Integer> stripes = new HashSet<>();
+        boolean collided = false;
+        for (int process = 0; process < processes; process++) {
+          SequenceGenerator.StripeCounter counter = new SequenceGenerator.StripeCounter(random.nextInt());
+          for (int task = 0; task < tasks; task++) {
+            collided |= !stripes.add(counter.next());
+          }
+        }
+        if (collided) {
+          shared++;
+        }
+      }
+      double expected = 1 - Math.exp(-processes * (processes - 1.0) * (2 * tasks - 1) / 8192);
+      Assert.assertEquals(expected, (double) shared / trials, 0.01);
+    }
+  }
+
+  @Test
+  public void testUniqueAcrossIndependentProcesses() {
+    // every process starts its stripe counter at the same point, so any stripe taken from the counters would be
+    // shared, and every task generates its IDs in the same millisecond
+    long millis = System.currentTimeMillis();
+    int processes = 64;
+    int tasksPerProcess = 8;
+    int idsPerTask = 2000;
+    long[] all = new long[processes * tasksPerProcess * idsPerTask];
+    int next = 0;
+    for (int process = 0; process < processes; process++) {
+      SequenceGenerator.StripeCounter processStripes = new SequenceGenerator.StripeCounter(0);
+      for (int task = 0; task < tasksPerProcess; task++) {
+        int partition = task * processes + process;
+        SequenceGenerator generator =
+          new SequenceGenerator(SequenceGenerator.taskStripe(partition, processStripes), () -> millis);
+        for (int i = 0; i < idsPerTask; i++) {
+          all[next++] = generator.next();
+        }
+      }
+    }
+    Arrays.sort(all);
+    for (int i = 1; i < all.length; i++) {
+      Assert.assertNotEquals(all[i - 1], all[i]);
+    }
+  }
+
+  @Test
+  public void testTaskStripeFallsBackToProcessStripes() {
+    SequenceGenerator.StripeCounter processStripes = new SequenceGenerator.StripeCounter(7);
+    Assert.assertEquals(7, SequenceGenerator.taskStripe(null, processStripes));
+    Assert.assertEquals(8, SequenceGenerator.taskStripe(null, processStripes));
+    Assert.assertEquals(5, SequenceGenerator.taskStripe(SequenceGenerator.MAX_STRIPE + 6, processStripes));
+  }
+
+  @Test
+  public void testStripeCounterIsDistinctWithinProcess() {
+    SequenceGenerator.StripeCounter counter = new SequenceGenerator.StripeCounter(new Random().nextInt());
+    Set<Integer> stripes = new HashSet<>();
+    for (int i = 0; i <= SequenceGenerator.MAX_STRIPE; i++) {
+      Assert.assertTrue(stripes.add(counter.next()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidStripe() {
+    new SequenceGenerator(SequenceGenerator.MAX_STRIPE + 1);
+  }
+}
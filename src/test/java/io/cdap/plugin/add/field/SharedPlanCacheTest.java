@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Unit tests for SharedPlanCache.
+ */
+public class SharedPlanCacheTest {
+  private static final List<Schema.Field> ADDED_FIELDS =
+    Collections.singletonList(Schema.Field.of("added", Schema.of(Schema.Type.STRING)));
+  private static final String PLAN_KEY = SharedPlanCache.planKey(ADDED_FIELDS, CollisionPolicy.ERROR, "%s");
+
+  private static Schema schema(int fields) {
+    Schema.Field[] schemaFields = new Schema.Field[fields];
+    for (int i = 0; i < fields; i++) {
+      schemaFields[i] = Schema.Field.of("f" + i, Schema.of(Schema.Type.STRING));
+    }
+    return Schema.recordOf("rec", schemaFields);
+  }
+
+  private static Function<Schema, OutputPlan> planner(AtomicInteger plans) {
+    return schema -> {
+      plans.incrementAndGet();
+      return OutputPlan.create(schema, ADDED_FIELDS, Collections.singleton("added"), CollisionPolicy.ERROR, "%s");
+    };
+  }
+
+  @Test
+  public void testPlansOncePerKeyAndSchema() throws Exception {
+    AtomicInteger plans = new AtomicInteger();
+    SharedPlanCache cache = new SharedPlanCache(4);
+
+    Schema schema = schema(2);
+    OutputPlan plan = cache.get(PLAN_KEY, schema, planner(plans));
+    Assert.assertSame(plan, cache.get(PLAN_KEY, Schema.parseJson(schema.toString()), planner(plans)));
+    Assert.assertEquals(1, plans.get());
+
+    String otherKey = SharedPlanCache.planKey(ADDED_FIELDS, CollisionPolicy.OVERWRITE, "%s");
+    Assert.assertNotSame(plan, cache.get(otherKey, schema, planner(plans)));
+    Assert.assertEquals(2, plans.get());
+  }
+
+  @Test
+  public void testBoundedLeastRecentlyUsed() {
+    AtomicInteger plans = new AtomicInteger();
+    SharedPlanCache cache = new SharedPlanCache(2);
+
+    cache.get(PLAN_KEY, schema(1), planner(plans));
+    cache.get(PLAN_KEY, schema(2), planner(plans));
+    cache.get(PLAN_KEY, schema(1), planner(plans));
+    cache.get(PLAN_KEY, schema(3), planner(plans));
+    Assert.assertEquals(2, cache.size());
+    // the second schema was the least recently used, so it was evicted and is planned again
+    cache.get(PLAN_KEY, schema(1), planner(plans));
+    Assert.assertEquals(3, plans.get());
+    cache.get(PLAN_KEY, schema(2), planner(plans));
+    Assert.assertEquals(4, plans.get());
+  }
+
+  @Test
+  public void testRecordNameIsPartOfKey() {
+    SharedPlanCache cache = new SharedPlanCache(4);
+    AtomicInteger plans = new AtomicInteger();
+
+    Schema schema = schema(2);
+    Assert.assertEquals("rec.added", cache.get(PLAN_KEY, schema, planner(plans)).getOutputSchema().getRecordName());
+    Assert.assertEquals("renamed.added",
+                        cache.get(PLAN_KEY, Schema.recordOf("renamed", schema.getFields()), planner(plans))
+                          .getOutputSchema().getRecordName());
+  }
+
+  @Test
+  public void testFailedPlanIsNotCached() {
+    SharedPlanCache cache = new SharedPlanCache(4);
+    try {
+      cache.get(PLAN_KEY, schema(1), schema -> {
+        throw new IllegalArgumentException("bad");
+      });
+      Assert.fail("Expected the planner's exception.");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("bad", e.getMessage());
+    }
+    Assert.assertEquals(0, cache.size());
+  }
+}
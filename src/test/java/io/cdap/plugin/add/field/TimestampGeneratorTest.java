@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Unit tests for TimestampGenerator.
+ */
+public class TimestampGeneratorTest {
+
+  /**
+   * A clock that only moves when it is told to.
+   */
+  private static final class ManualClock extends Clock {
+    private Instant instant;
+
+    private ManualClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+
+  @Test
+  public void testRecordGranularity() {
+    ManualClock clock = new ManualClock(Instant.parse("2020-01-01T00:00:00.123456Z"));
+    TimestampGenerator generator = new TimestampGenerator(TimestampGenerator.Granularity.RECORD, null, clock);
+
+    Assert.assertEquals(1577836800123456L, generator.next());
+    clock.instant = Instant.parse("2020-01-01T00:00:00.123457Z");
+    Assert.assertEquals(1577836800123457L, generator.next());
+  }
+
+  @Test
+  public void testMillisecondGranularityReusesValue() {
+    ManualClock clock = new ManualClock(Instant.parse("2020-01-01T00:00:00.123456Z"));
+    TimestampGenerator generator = new TimestampGenerator(TimestampGenerator.Granularity.MILLISECOND, null, clock);
+
+    Object first = generator.next();
+    clock.instant = Instant.parse("2020-01-01T00:00:00.123999Z");
+    Assert.assertEquals(1577836800123000L, first);
+    Assert.assertSame(first, generator.next());
+    clock.instant = Instant.parse("2020-01-01T00:00:00.124Z");
+    Assert.assertEquals(1577836800124000L, generator.next());
+  }
+
+  @Test
+  public void testSecondGranularityFormatted() {
+    ManualClock clock = new ManualClock(Instant.parse("2020-01-01T10:15:30.5Z"));
+    TimestampGenerator generator = new TimestampGenerator(TimestampGenerator.Granularity.SECOND,
+                                                          "yyyy-MM-dd HH:mm:ss.SSS", clock);
+
+    Object first = generator.next();
+    clock.instant = Instant.parse("2020-01-01T10:15:30.999Z");
+    Assert.assertEquals("2020-01-01 10:15:30.000", first);
+    Assert.assertSame(first, generator.next());
+    clock.instant = Instant.parse("2020-01-01T10:15:31Z");
+    Assert.assertEquals("2020-01-01 10:15:31.000", generator.next());
+  }
+
+  @Test
+  public void testTaskGranularity() {
+    ManualClock clock = new ManualClock(Instant.parse("2020-01-01T00:00:00Z"));
+    TimestampGenerator generator = new TimestampGenerator(TimestampGenerator.Granularity.TASK, null, clock);
+
+    Object first = generator.next();
+    clock.instant = Instant.parse("2020-01-02T00:00:00Z");
+    Assert.assertEquals(1577836800000000L, first);
+    Assert.assertSame(first, generator.next());
+  }
+
+  @Test
+  public void testBeforeEpoch() {
+    ManualClock clock = new ManualClock(Instant.parse("1969-12-31T23:59:59.5Z"));
+    TimestampGenerator generator = new TimestampGenerator(TimestampGenerator.Granularity.SECOND,
+                                                          "yyyy-MM-dd'T'HH:mm:ss", clock);
+
+    Assert.assertEquals("1969-12-31T23:59:59", generator.next());
+  }
+}
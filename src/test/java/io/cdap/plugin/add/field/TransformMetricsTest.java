@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.common.MockStageMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for TransformMetrics.
+ */
+public class TransformMetricsTest {
+
+  @Test
+  public void testBuckets() {
+    Assert.assertEquals("record.nanos.le.128", TransformMetrics.bucketName(TransformMetrics.bucket(0)));
+    Assert.assertEquals("record.nanos.le.128", TransformMetrics.bucketName(TransformMetrics.bucket(128)));
+    Assert.assertEquals("record.nanos.le.256", TransformMetrics.bucketName(TransformMetrics.bucket(129)));
+    Assert.assertEquals("record.nanos.le.1024", TransformMetrics.bucketName(TransformMetrics.bucket(1000)));
+    Assert.assertEquals("record.nanos.le.16777216", TransformMetrics.bucketName(TransformMetrics.bucket(1 << 24)));
+    Assert.assertEquals("record.nanos.le.max", TransformMetrics.bucketName(TransformMetrics.bucket(1L << 40)));
+  }
+
+  @Test
+  public void testCountsAreBatched() {
+    MockStageMetrics stageMetrics = new MockStageMetrics("stage");
+    SchemaCache<Schema> cache = new SchemaCache<>(schema -> schema);
+    TransformMetrics metrics = new TransformMetrics(stageMetrics, cache, 0);
+
+    Schema schema = Schema.recordOf("rec", Schema.Field.of("f", Schema.of(Schema.Type.STRING)));
+    for (int i = 0; i < TransformMetrics.FLUSH_INTERVAL - 1; i++) {
+      metrics.recordStarted();
+      cache.get(schema);
+      metrics.recordEmitted();
+    }
+    Assert.assertEquals(0, stageMetrics.getCount(TransformMetrics.RECORDS));
+
+    metrics.recordStarted();
+    cache.get(schema);
+    Assert.assertTrue(metrics.collisionFailed("f"));
+    metrics.collisionEmitted();
+    Assert.assertEquals(TransformMetrics.FLUSH_INTERVAL, stageMetrics.getCount(TransformMetrics.RECORDS));
+    Assert.assertEquals(1, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS));
+    Assert.assertEquals(1, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS_FIELD_PREFIX + "f"));
+    Assert.assertEquals(1, stageMetrics.getCount(TransformMetrics.CACHE_MISSES));
+    Assert.assertEquals(TransformMetrics.FLUSH_INTERVAL - 1, stageMetrics.getCount(TransformMetrics.CACHE_HITS));
+    Assert.assertEquals(0, stageMetrics.getCount(TransformMetrics.SAMPLED_RECORDS));
+  }
+
+  @Test
+  public void testSampling() {
+    MockStageMetrics stageMetrics = new MockStageMetrics("stage");
+    TransformMetrics metrics = new TransformMetrics(stageMetrics, new SchemaCache<>(schema -> schema), 10);
+
+    for (int i = 0; i < 100; i++) {
+      metrics.recordStarted();
+      metrics.recordEmitted();
+    }
+    metrics.flush();
+
+    Assert.assertEquals(100, stageMetrics.getCount(TransformMetrics.RECORDS));
+    Assert.assertEquals(10, stageMetrics.getCount(TransformMetrics.SAMPLED_RECORDS));
+    int bucketed = 0;
+    for (int i = 0; i <= TransformMetrics.bucket(Long.MAX_VALUE); i++) {
+      bucketed += stageMetrics.getCount(TransformMetrics.bucketName(i));
+    }
+    Assert.assertEquals(10, bucketed);
+  }
+
+  @Test
+  public void testErrorSampling() {
+    MockStageMetrics stageMetrics = new MockStageMetrics("stage");
+    TransformMetrics metrics = new TransformMetrics(stageMetrics, new SchemaCache<>(schema -> schema), 0, 4);
+    String first = "first";
+    String second = "second";
+
+    int emitted = 0;
+    for (String field : new String[] {first, first, first, first, first, first, second, second, first}) {
+      metrics.recordStarted();
+      if (metrics.collisionFailed(field)) {
+        emitted++;
+        metrics.collisionEmitted();
+      }
+    }
+    metrics.flush();
+
+    // the first and fifth failure because of the first field, and the first because of the second field
+    Assert.assertEquals(3, emitted);
+    Assert.assertEquals(9, stageMetrics.getCount(TransformMetrics.RECORDS));
+    Assert.assertEquals(9, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS));
+    Assert.assertEquals(3, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS_EMITTED));
+    Assert.assertEquals(7, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS_FIELD_PREFIX + first));
+    Assert.assertEquals(2, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS_FIELD_PREFIX + second));
+  }
+
+  @Test
+  public void testErrorSamplingWhenFailuresAlternate() {
+    MockStageMetrics stageMetrics = new MockStageMetrics("stage");
+    TransformMetrics metrics = new TransformMetrics(stageMetrics, new SchemaCache<>(schema -> schema), 0, 4);
+
+    int emitted = 0;
+    for (int i = 0; i < 2 * TransformMetrics.FLUSH_INTERVAL; i++) {
+      metrics.recordStarted();
+      // equal paths from different plans are the same field
+      if (metrics.collisionFailed(new String(i % 2 == 0 ? "first" : "second"))) {
+        emitted++;
+        metrics.collisionEmitted();
+      }
+    }
+    metrics.flush();
+
+    Assert.assertEquals(2 * TransformMetrics.FLUSH_INTERVAL / 4, emitted);
+    Assert.assertEquals(2 * TransformMetrics.FLUSH_INTERVAL, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS));
+    Assert.assertEquals(emitted, stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS_EMITTED));
+    Assert.assertEquals(TransformMetrics.FLUSH_INTERVAL,
+                        stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS_FIELD_PREFIX + "first"));
+    Assert.assertEquals(TransformMetrics.FLUSH_INTERVAL,
+                        stageMetrics.getCount(TransformMetrics.COLLISION_ERRORS_FIELD_PREFIX + "second"));
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for UUIDGenerator.
+ */
+public class UUIDGeneratorTest {
+  private static final Logger LOG = LoggerFactory.getLogger(UUIDGeneratorTest.class);
+  private static final int THREADS = 8;
+  private static final int UUIDS_PER_THREAD = 100000;
+
+  @Test
+  public void testVersionAndVariant() {
+    Assert.assertEquals(4, UUIDGenerator.SECURE.generate().version());
+    Assert.assertEquals(4, UUIDGenerator.FAST.generate().version());
+    Assert.assertEquals(7, UUIDGenerator.TIME_ORDERED.generate().version());
+    for (UUIDGenerator generator : UUIDGenerator.values()) {
+      Assert.assertEquals(2, generator.generate().variant());
+    }
+  }
+
+  @Test
+  public void testTimeOrdered() throws InterruptedException {
+    long before = System.currentTimeMillis();
+    UUID first = UUIDGenerator.TIME_ORDERED.generate();
+    TimeUnit.MILLISECONDS.sleep(2);
+    UUID second = UUIDGenerator.TIME_ORDERED.generate();
+    long after = System.currentTimeMillis();
+
+    long firstMillis = first.getMostSignificantBits() >>> 16;
+    Assert.assertTrue(firstMillis >= before && firstMillis <= after);
+    Assert.assertTrue(first.toString().compareTo(second.toString()) < 0);
+  }
+
+  @Test
+  public void testFromValue() {
+    Assert.assertEquals(UUIDGenerator.SECURE, UUIDGenerator.fromValue("secure"));
+    Assert.assertEquals(UUIDGenerator.FAST, UUIDGenerator.fromValue("FAST"));
+    Assert.assertEquals(UUIDGenerator.TIME_ORDERED, UUIDGenerator.fromValue("time-ordered"));
+    Assert.assertNull(UUIDGenerator.fromValue("v1"));
+  }
+
+  @Test
+  public void testConcurrentUniquenessAndThroughput() throws Exception {
+    for (UUIDGenerator generator : UUIDGenerator.values()) {
+      Set<UUID> uuids = ConcurrentHashMap.newKeySet(THREADS * UUIDS_PER_THREAD);
+      long nanos = generateConcurrently(generator, uuids);
+      Assert.assertEquals(THREADS * UUIDS_PER_THREAD, uuids.size());
+      LOG.info("Generator '{}' produced {} UUIDs/sec across {} threads", generator.getValue(),
+               THREADS * UUIDS_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / nanos, THREADS);
+    }
+  }
+
+  private static long generateConcurrently(UUIDGenerator generator, Set<UUID> uuids) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Long>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(executor.submit(() -> {
+          UUID[] generated = new UUID[UUIDS_PER_THREAD];
+          start.await();
+          long startNanos = System.nanoTime();
+          for (int i = 0; i < UUIDS_PER_THREAD; i++) {
+            generated[i] = generator.generate();
+          }
+          long elapsed = System.nanoTime() - startNanos;
+          for (UUID uuid : generated) {
+            uuids.add(uuid);
+          }
+          return elapsed;
+        }));
+      }
+      start.countDown();
+      long maxNanos = 1;
+      for (Future<Long> future : futures) {
+        maxNanos = Math.max(maxNanos, future.get(1, TimeUnit.MINUTES));
+      }
+      return maxNanos;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2016-2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.add.field;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for ValueGenerators.
+ */
+public class ValueGeneratorsTest {
+
+  @Test
+  public void testBuiltInFactoriesAreLoaded() {
+    List<String> names = new ArrayList<>();
+    ValueGenerators.getNames().forEach(names::add);
+    Assert.assertTrue(names.containsAll(Arrays.asList("constant", "sequence", "uuid")));
+    Assert.assertTrue(ValueGenerators.get("UUID") instanceof ValueGenerators.Uuid);
+    Assert.assertNull(ValueGenerators.get("missing"));
+  }
+
+  @Test
+  public void testGenerators() {
+    MockTransformContext context = new MockTransformContext();
+
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), ValueGenerators.get("constant").getSchema("x"));
+    Assert.assertEquals("x", ValueGenerators.get("constant").create("x", context).next());
+
+    ValueGenerator uuid = ValueGenerators.get("uuid").create("time-ordered", context);
+    Assert.assertNotEquals(UUID.fromString((String) uuid.next()), UUID.fromString((String) uuid.next()));
+
+    Assert.assertEquals(Schema.of(Schema.Type.LONG), ValueGenerators.get("sequence").getSchema(null));
+    ValueGenerator sequence = ValueGenerators.get("sequence").create(null, context);
+    Assert.assertTrue((Long) sequence.next() < (Long) sequence.next());
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    for (String[] invalid : new String[][] {{"constant", null}, {"uuid", "random"}, {"sequence", "1"}}) {
+      try {
+        ValueGenerators.get(invalid[0]).getSchema(invalid[1]);
+        Assert.fail(String.format("Expected '%s' to reject argument '%s'.", invalid[0], invalid[1]));
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+}